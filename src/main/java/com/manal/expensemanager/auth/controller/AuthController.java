@@ -4,9 +4,11 @@ import com.manal.expensemanager.auth.dto.*;
 import com.manal.expensemanager.auth.service.AuthService;
 import com.manal.expensemanager.dto.UserDTO;
 import com.manal.expensemanager.model.User;
+import com.manal.expensemanager.security.AuthenticatedUser;
 import com.manal.expensemanager.security.CurrentUser;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
@@ -20,6 +22,15 @@ public class AuthController {
 
     @GetMapping("/me")
     public UserDTO getCurrentUser() {
+        AuthenticatedUser principal = currentUser.principal();
+        if (principal != null) {
+            return new UserDTO(
+                    principal.getId(),
+                    principal.getEmail(),
+                    principal.getFullName(),
+                    principal.getRole().name()
+            );
+        }
         User user = currentUser.get();
         return new UserDTO(
                 user.getId(),
@@ -44,8 +55,10 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<Void> logout(@RequestBody RefreshRequest req) {
-        authService.logout(req.getRefreshToken());
+    public ResponseEntity<Void> logout(@RequestBody RefreshRequest req,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        String accessToken = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+        authService.logout(req.getRefreshToken(), accessToken);
         return ResponseEntity.noContent().build();
     }
 
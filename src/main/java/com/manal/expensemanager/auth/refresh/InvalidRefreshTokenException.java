@@ -0,0 +1,15 @@
+package com.manal.expensemanager.auth.refresh;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A refresh token that cannot be redeemed: unknown (never issued, evicted by the session cap or
+ * logged out), expired, or already consumed.
+ */
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class InvalidRefreshTokenException extends IllegalArgumentException {
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,6 @@
+package com.manal.expensemanager.auth.refresh;
+
+import java.time.Instant;
+
+/** The raw refresh token handed to the client exactly once; only its digest is persisted. */
+public record IssuedRefreshToken(String token, Instant expiresAt) {}
@@ -0,0 +1,6 @@
+package com.manal.expensemanager.auth.refresh;
+
+import com.manal.expensemanager.security.AuthenticatedUser;
+
+/** Outcome of redeeming a refresh token: who it belonged to and its single-use successor. */
+public record RefreshRotation(AuthenticatedUser principal, IssuedRefreshToken next) {}
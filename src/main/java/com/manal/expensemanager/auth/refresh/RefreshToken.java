@@ -6,14 +6,20 @@ import lombok.*;
 import java.time.Instant;
 
 @Entity @Data @Builder @NoArgsConstructor @AllArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_refresh_token_user_active", columnList = "user_id, revoked"),
+        @Index(name = "idx_refresh_token_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_refresh_token_revoked_at", columnList = "revoked_at")
+})
 public class RefreshToken {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable=false, unique=true, length=200)
-    private String token;
+    // SHA-256 of the opaque token (base64url, 43 chars); the raw value is never stored
+    @Column(name = "token", nullable=false, unique=true, length=64)
+    private String tokenHash;
 
-    @ManyToOne(optional=false)
+    @ManyToOne(optional=false, fetch = FetchType.LAZY)
     private User user;
 
     @Column(nullable=false)
@@ -21,4 +27,6 @@ public class RefreshToken {
 
     @Column(nullable=false)
     private boolean revoked;
+
+    private Instant revokedAt;
 }
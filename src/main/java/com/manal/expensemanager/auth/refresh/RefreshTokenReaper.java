@@ -0,0 +1,114 @@
+package com.manal.expensemanager.auth.refresh;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Periodically deletes refresh tokens that can no longer be redeemed. Work is done in
+ * bounded batches, each its own transaction, so no run holds locks on more than
+ * {@code batch-size} rows at a time and live rotations are never blocked. Each run also
+ * drops expired tokens from {@link RefreshTokenService}'s in-memory cache, whether or not
+ * the database purge is enabled.
+ */
+@Slf4j
+@Component
+public class RefreshTokenReaper implements MeterBinder {
+
+    private final RefreshTokenRepository repo;
+    private final RefreshTokenService refreshTokens;
+    private final boolean enabled;
+    private final Duration revokedRetention;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Clock clock;
+
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    @Autowired
+    public RefreshTokenReaper(RefreshTokenRepository repo,
+                              RefreshTokenService refreshTokens,
+                              @Value("${auth.refresh.purge.enabled:true}") boolean enabled,
+                              @Value("${auth.refresh.purge.revoked-retention:1d}") Duration revokedRetention,
+                              @Value("${auth.refresh.purge.batch-size:1000}") int batchSize,
+                              @Value("${auth.refresh.purge.max-batches:100}") int maxBatches) {
+        this(repo, refreshTokens, enabled, revokedRetention, batchSize, maxBatches, Clock.systemUTC());
+    }
+
+    public RefreshTokenReaper(RefreshTokenRepository repo, RefreshTokenService refreshTokens, boolean enabled, Duration revokedRetention,
+                              int batchSize, int maxBatches, Clock clock) {
+        this.repo = repo;
+        this.refreshTokens = refreshTokens;
+        this.enabled = enabled;
+        this.revokedRetention = revokedRetention;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.clock = clock;
+    }
+
+    @Scheduled(initialDelayString = "PT1M", fixedDelayString = "${auth.refresh.purge.interval:PT1H}")
+    public void scheduledPurge() {
+        refreshTokens.evictExpired();
+        if (enabled) {
+            purge();
+        }
+    }
+
+    /** Runs one purge pass and returns the number of rows deleted. */
+    public long purge() {
+        long start = System.nanoTime();
+        Instant now = clock.instant();
+        Instant revokedBefore = now.minus(revokedRetention);
+        long total = 0;
+        try {
+            total += purgeInBatches(batch -> repo.purgeExpiredBatch(now, batch));
+            total += purgeInBatches(batch -> repo.purgeRevokedBatch(revokedBefore, batch));
+        } finally {
+            runs.increment();
+            runNanos.add(System.nanoTime() - start);
+        }
+        if (total > 0) {
+            log.info("Purged {} refresh tokens", total);
+        }
+        return total;
+    }
+
+    private long purgeInBatches(IntUnaryOperator deleteBatch) {
+        long total = 0;
+        for (int i = 0; i < maxBatches; i++) {
+            int n = deleteBatch.applyAsInt(batchSize);
+            total += n;
+            deleted.add(n);
+            if (n < batchSize) break;
+        }
+        return total;
+    }
+
+    public long deletedCount() { return deleted.sum(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.refresh.purge.deleted", deleted, LongAdder::sum)
+                .description("Expired or revoked refresh tokens deleted by the purge job")
+                .register(registry);
+        FunctionTimer.builder("auth.refresh.purge.duration", this,
+                        r -> r.runs.sum(), r -> r.runNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time spent per purge run")
+                .register(registry);
+    }
+}
@@ -1,8 +1,67 @@
 package com.manal.expensemanager.auth.refresh;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token);
+
+    @EntityGraph(attributePaths = "user")
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    @EntityGraph(attributePaths = "user")
+    @Query("SELECT rt FROM RefreshToken rt WHERE rt.user.id = :userId AND rt.revoked = false " +
+            "AND rt.expiresAt > :now ORDER BY rt.id")
+    List<RefreshToken> findActiveByUserId(@Param("userId") Long userId, @Param("now") Instant now);
+
+    /** Single-use consumption: only one caller can flip a given token, so 0 means it was already used. */
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = :now " +
+            "WHERE rt.tokenHash = :tokenHash AND rt.revoked = false")
+    int revokeIfActive(@Param("tokenHash") String tokenHash, @Param("now") Instant now);
+
+    /**
+     * Ends a session that was never redeemed (session cap, logout). The row is deleted rather
+     * than revoked: only a consumed token may later be taken for a stolen one.
+     */
+    @Modifying
+    @Query("DELETE FROM RefreshToken rt WHERE rt.tokenHash = :tokenHash AND rt.revoked = false")
+    int deleteIfActive(@Param("tokenHash") String tokenHash);
+
+    @Modifying
+    @Query("UPDATE RefreshToken rt SET rt.revoked = true, rt.revokedAt = :now " +
+            "WHERE rt.user.id = :userId AND rt.revoked = false")
+    int revokeAllForUser(@Param("userId") Long userId, @Param("now") Instant now);
+
+    /*
+     * The purge is two deletes rather than one with an OR, so each can walk its own index
+     * (expires_at and revoked_at). Both run in their own short transaction, and rows locked by a
+     * concurrent rotation are skipped rather than waited on; a later run picks them up.
+     */
+
+    /** Deletes up to {@code batchSize} rows that expired before {@code now}. */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_token WHERE id IN (" +
+            "SELECT id FROM refresh_token WHERE expires_at < :now " +
+            "LIMIT :batchSize FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int purgeExpiredBatch(@Param("now") Instant now, @Param("batchSize") int batchSize);
+
+    /**
+     * Deletes up to {@code batchSize} rows revoked before {@code revokedBefore}. Both revoke
+     * queries stamp revoked_at; a revoked row without one is left for the expiry purge.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_token WHERE id IN (" +
+            "SELECT id FROM refresh_token WHERE revoked_at < :revokedBefore " +
+            "LIMIT :batchSize FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int purgeRevokedBatch(@Param("revokedBefore") Instant revokedBefore, @Param("batchSize") int batchSize);
 }
@@ -1,41 +1,244 @@
 package com.manal.expensemanager.auth.refresh;
 
-import com.manal.expensemanager.model.User;
-import lombok.RequiredArgsConstructor;
+import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
+import com.manal.expensemanager.security.TokenDigests;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Clock;
 import java.time.Instant;
-import java.util.UUID;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Opaque, single-use refresh tokens.
+ * <ul>
+ *   <li>Only a SHA-256 digest is persisted, so the table stores fixed-length keys.</li>
+ *   <li>Live tokens are cached in memory with the principal they belong to, so redeeming
+ *       one needs no lookup or user load; revocations write through to the database.</li>
+ *   <li>Every refresh rotates the token. Presenting an already-consumed token is treated
+ *       as theft and revokes all of that user's sessions.</li>
+ *   <li>Each user keeps at most {@code max-sessions} live tokens; issuing one more evicts
+ *       the oldest from the head of a per-user queue. Evicted and logged-out tokens are
+ *       deleted, not revoked, so presenting one later is simply rejected.</li>
+ *   <li>The cache is only updated once the issuing transaction commits, and
+ *       {@link RefreshTokenReaper} drops expired entries, so it never outgrows the set of
+ *       redeemable tokens.</li>
+ * </ul>
+ */
 @Service
-@RequiredArgsConstructor
 public class RefreshTokenService {
-    private final RefreshTokenRepository repo;
     private static final long TTL_SECONDS = 7L * 24 * 60 * 60; // 7 days
 
-    public RefreshToken create(User user) {
-        var rt = RefreshToken.builder()
-                .user(user)
-                .token(UUID.randomUUID().toString())
-                .expiresAt(Instant.now().plusSeconds(TTL_SECONDS))
+    private final RefreshTokenRepository repo;
+    private final UserRepository userRepository;
+    private final int maxSessions;
+    private final Clock clock;
+
+    private final Map<String, LiveToken> live = new ConcurrentHashMap<>();
+    // Oldest first. With a fixed TTL, creation order is also expiry order.
+    private final Map<Long, Deque<String>> sessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RefreshTokenService(RefreshTokenRepository repo,
+                               UserRepository userRepository,
+                               @Value("${auth.refresh.max-sessions:5}") int maxSessions) {
+        this(repo, userRepository, maxSessions, Clock.systemUTC());
+    }
+
+    public RefreshTokenService(RefreshTokenRepository repo, UserRepository userRepository,
+                               int maxSessions, Clock clock) {
+        this.repo = repo;
+        this.userRepository = userRepository;
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+    }
+
+    @Transactional
+    public IssuedRefreshToken create(AuthenticatedUser principal) {
+        Instant now = clock.instant();
+        String raw = TokenDigests.randomToken();
+        String hash = TokenDigests.sha256(raw);
+        Instant expiresAt = now.plusSeconds(TTL_SECONDS);
+        AuthenticatedUser owner = withoutCredentials(principal);
+        Long userId = owner.getId();
+        List<String> evicted = sessionsToEvict(userId, now);
+
+        repo.save(RefreshToken.builder()
+                .user(userRepository.getReferenceById(userId))
+                .tokenHash(hash)
+                .expiresAt(expiresAt)
                 .revoked(false)
-                .build();
-        return repo.save(rt);
+                .build());
+        for (String oldest : evicted) {
+            repo.deleteIfActive(oldest);
+        }
+
+        // Only a committed row may be served from memory; a rolled-back one would later look reused
+        afterCommit(() -> {
+            live.put(hash, new LiveToken(owner, expiresAt));
+            sessions.computeIfPresent(userId, (id, queue) -> {
+                evicted.forEach(oldest -> {
+                    queue.remove(oldest);
+                    live.remove(oldest);
+                });
+                queue.addLast(hash);
+                return queue;
+            });
+        });
+        return new IssuedRefreshToken(raw, expiresAt);
     }
 
-    public RefreshToken validateUsable(String token) {
-        var rt = repo.findByToken(token)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
-        if (rt.isRevoked() || rt.getExpiresAt().isBefore(Instant.now())) {
-            throw new IllegalArgumentException("Refresh token expired or revoked");
+    /**
+     * Redeems {@code token} and issues its successor.
+     *
+     * @throws InvalidRefreshTokenException if the token is unknown, expired, revoked or being reused
+     */
+    @Transactional
+    public RefreshRotation rotate(String token) {
+        Instant now = clock.instant();
+        String hash = TokenDigests.sha256(token);
+
+        LiveToken current = live.get(hash);
+        if (current == null) {
+            var rt = repo.findByTokenHash(hash)
+                    .orElseThrow(() -> new InvalidRefreshTokenException("Invalid refresh token"));
+            if (rt.isRevoked()) {
+                revokeAll(rt.getUser().getId(), now);
+                throw new InvalidRefreshTokenException("Refresh token reuse detected; token revoked");
+            }
+            current = new LiveToken(withoutCredentials(AuthenticatedUser.of(rt.getUser())), rt.getExpiresAt());
+        }
+        if (current.expiresAt().isBefore(now)) {
+            forget(hash, current.principal().getId());
+            throw new InvalidRefreshTokenException("Refresh token expired or revoked");
+        }
+
+        // Consume atomically. Losing this race means the token was already redeemed elsewhere,
+        // unless its row is gone: another instance evicted it or logged it out
+        if (repo.revokeIfActive(hash, now) == 0) {
+            if (repo.findByTokenHash(hash).isEmpty()) {
+                forget(hash, current.principal().getId());
+                throw new InvalidRefreshTokenException("Invalid refresh token");
+            }
+            revokeAll(current.principal().getId(), now);
+            throw new InvalidRefreshTokenException("Refresh token reuse detected; token revoked");
         }
-        return rt;
+        forget(hash, current.principal().getId());
+
+        AuthenticatedUser owner = current.principal();
+        return new RefreshRotation(owner, create(owner));
     }
 
+    @Transactional
     public void revoke(String token) {
-        repo.findByToken(token).ifPresent(rt -> {
-            rt.setRevoked(true);
-            repo.save(rt);
+        String hash = TokenDigests.sha256(token);
+        repo.deleteIfActive(hash);
+        LiveToken cached = live.get(hash);
+        if (cached != null) {
+            forget(hash, cached.principal().getId());
+        }
+    }
+
+    @Transactional
+    public void revokeAll(Long userId) {
+        revokeAll(userId, clock.instant());
+    }
+
+    /**
+     * Drops cached tokens that have expired, and the session queues of users left with
+     * none, so the cache only ever holds tokens that could still be redeemed.
+     * Called by {@link RefreshTokenReaper}.
+     */
+    public void evictExpired() {
+        Instant now = clock.instant();
+        live.values().removeIf(t -> t.expiresAt().isBefore(now));
+        for (Long userId : sessions.keySet()) {
+            sessions.computeIfPresent(userId, (id, queue) -> {
+                dropExpired(queue, now);
+                return queue.isEmpty() ? null : queue;
+            });
+        }
+    }
+
+    private void revokeAll(Long userId, Instant now) {
+        repo.revokeAllForUser(userId, now);
+        Deque<String> userSessions = sessions.remove(userId);
+        if (userSessions != null) {
+            userSessions.forEach(live::remove);
+        }
+    }
+
+    private void forget(String hash, Long userId) {
+        live.remove(hash);
+        sessions.computeIfPresent(userId, (id, queue) -> {
+            queue.remove(hash); // at most max-sessions entries
+            return queue;
+        });
+    }
+
+    /*
+     * The oldest sessions that must go to make room for one more. The queue itself is only
+     * trimmed once the new token commits; the first touch for a user seeds it (and the
+     * cache) from its active rows, loaded before any per-user lock is taken.
+     */
+    private List<String> sessionsToEvict(Long userId, Instant now) {
+        if (!sessions.containsKey(userId)) {
+            Deque<String> seeded = new ArrayDeque<>();
+            for (RefreshToken rt : repo.findActiveByUserId(userId, now)) {
+                seeded.addLast(rt.getTokenHash());
+                live.put(rt.getTokenHash(),
+                        new LiveToken(withoutCredentials(AuthenticatedUser.of(rt.getUser())), rt.getExpiresAt()));
+            }
+            sessions.putIfAbsent(userId, seeded);
+        }
+        List<String> evicted = new ArrayList<>();
+        sessions.computeIfPresent(userId, (id, queue) -> {
+            dropExpired(queue, now);
+            Iterator<String> oldestFirst = queue.iterator();
+            for (int excess = queue.size() + 1 - maxSessions; excess > 0 && oldestFirst.hasNext(); excess--) {
+                evicted.add(oldestFirst.next());
+            }
+            return queue;
         });
+        return evicted;
     }
+
+    private void dropExpired(Deque<String> queue, Instant now) {
+        while (!queue.isEmpty()) {
+            LiveToken head = live.get(queue.peekFirst());
+            if (head != null && !head.expiresAt().isBefore(now)) break;
+            live.remove(queue.pollFirst());
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static AuthenticatedUser withoutCredentials(AuthenticatedUser p) {
+        return p.getPassword() == null ? p
+                : new AuthenticatedUser(p.getId(), p.getEmail(), p.getFullName(), p.getRole(), null);
+    }
+
+    private record LiveToken(AuthenticatedUser principal, Instant expiresAt) {}
 }
@@ -6,14 +6,20 @@ import com.manal.expensemanager.auth.dto.SignupRequest;
 import com.manal.expensemanager.model.Role;
 import com.manal.expensemanager.model.User;
 import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
+import com.manal.expensemanager.security.password.PasswordHashingBusyException;
+import com.manal.expensemanager.security.jwt.JwtClaims;
 import com.manal.expensemanager.security.jwt.JwtService;
-import com.manal.expensemanager.auth.refresh.RefreshToken;
+import com.manal.expensemanager.security.revocation.AccessTokenDenylist;
+import io.jsonwebtoken.JwtException;
+import com.manal.expensemanager.auth.refresh.IssuedRefreshToken;
+import com.manal.expensemanager.auth.refresh.RefreshRotation;
 import com.manal.expensemanager.auth.refresh.RefreshTokenService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -27,6 +33,7 @@ public class AuthService {
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
     private final RefreshTokenService refreshTokenService;
+    private final AccessTokenDenylist accessTokenDenylist;
 
     @Transactional
     public AuthResponse signup(SignupRequest request) {
@@ -45,54 +52,69 @@ public class AuthService {
 
         User saved = userRepository.save(user);
 
-        String access = jwtService.generateToken(saved.getEmail());
-        RefreshToken rt = refreshTokenService.create(saved);
+        AuthenticatedUser principal = AuthenticatedUser.of(saved);
+        String access = jwtService.generateToken(principal);
+        IssuedRefreshToken rt = refreshTokenService.create(principal);
 
         return AuthResponse.builder()
                 .accessToken(access)
-                .refreshToken(rt.getToken())
+                .refreshToken(rt.token())
                 .build();
     }
 
     @Transactional
     public AuthResponse login(AuthRequest request) {
+        Authentication auth;
         try {
-            authenticationManager.authenticate(
+            auth = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(request.getEmail(), request.getPassword())
             );
+        } catch (PasswordHashingBusyException e) {
+            throw e; // surface as 503, not as bad credentials
         } catch (Exception e) {
             throw new BadCredentialsException("Invalid email or password");
         }
 
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        // The provider already loaded the user; reuse its principal instead of querying again
+        AuthenticatedUser principal = (AuthenticatedUser) auth.getPrincipal();
 
-        String access = jwtService.generateToken(user.getEmail());
-        RefreshToken rt = refreshTokenService.create(user);
+        String access = jwtService.generateToken(principal);
+        IssuedRefreshToken rt = refreshTokenService.create(principal);
 
         return AuthResponse.builder()
                 .accessToken(access)
-                .refreshToken(rt.getToken())
+                .refreshToken(rt.token())
                 .build();
     }
 
-    @Transactional(readOnly = true)
+    @Transactional
     public AuthResponse refresh(String refreshToken) {
-        RefreshToken rt = refreshTokenService.validateUsable(refreshToken);
-        String newAccess = jwtService.generateToken(rt.getUser().getEmail());
-
-        // (optional) rotate RT for stronger security:
-        // refreshTokenService.revoke(refreshToken);
-        // String newRt = refreshTokenService.create(rt.getUser()).getToken();
+        // Single use: the presented token is consumed and replaced
+        RefreshRotation rotation = refreshTokenService.rotate(refreshToken);
+        String newAccess = jwtService.generateToken(rotation.principal());
 
         return AuthResponse.builder()
                 .accessToken(newAccess)
-                .refreshToken(refreshToken) // or newRt if you rotate
+                .refreshToken(rotation.next().token())
                 .build();
     }
 
     @Transactional
     public void logout(String refreshToken) {
+        logout(refreshToken, null);
+    }
+
+    /** Also revokes the presented access token, so it stops working before its 24h expiry. */
+    @Transactional
+    public void logout(String refreshToken, String accessToken) {
         refreshTokenService.revoke(refreshToken);
+        if (accessToken != null) {
+            try {
+                JwtClaims claims = jwtService.verify(accessToken);
+                accessTokenDenylist.revoke(claims.tokenId(), claims.expiresAt());
+            } catch (JwtException e) {
+                // expired or not ours: nothing left to revoke
+            }
+        }
     }
 }
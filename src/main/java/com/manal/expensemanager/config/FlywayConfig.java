@@ -0,0 +1,32 @@
+package com.manal.expensemanager.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+/**
+ * Applies the versioned migrations in {@code db/migration} once per database, recorded in
+ * {@code flyway_schema_history}, instead of re-running DDL on every start.
+ * <p>
+ * Hibernate ({@code ddl-auto=update}) still creates the tables, and the migrations only add
+ * indexes, columns and triggers to them. So they run once the entity manager factory has
+ * updated the schema, not before it, as Boot would order them by default.
+ */
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy deferUntilHibernateSchemaUpdate() {
+        return flyway -> { };
+    }
+
+    @Bean
+    @DependsOn("entityManagerFactory")
+    public InitializingBean flywayMigrateAfterHibernate(ObjectProvider<Flyway> flyway) {
+        return () -> flyway.ifAvailable(Flyway::migrate);
+    }
+}
@@ -1,70 +1,190 @@
 package com.manal.expensemanager.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.manal.expensemanager.dto.AnnualStatDTO;
 import com.manal.expensemanager.dto.CategoryStatDTO;
+import com.manal.expensemanager.dto.CursorPage;
+import com.manal.expensemanager.dto.DashboardDTO;
+import com.manal.expensemanager.dto.DateRange;
+import com.manal.expensemanager.dto.ExpenseChangesDTO;
+import com.manal.expensemanager.dto.ExpenseFilter;
 import com.manal.expensemanager.dto.ExpenseRequestDTO;
+import com.manal.expensemanager.dto.ExpenseSearchHit;
+import com.manal.expensemanager.dto.ExpenseView;
 import com.manal.expensemanager.dto.MonthlyStatDTO;
-import com.manal.expensemanager.model.Expense;
+import com.manal.expensemanager.dto.PageResponse;
+import com.manal.expensemanager.dto.RetagRequestDTO;
+import com.manal.expensemanager.dto.RetagResult;
+import com.manal.expensemanager.dto.TagStatDTO;
+import com.manal.expensemanager.dto.TrendsDTO;
 import com.manal.expensemanager.service.ExpenseService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
 import org.springframework.http.HttpHeaders;
 @RestController
 @RequestMapping("/api/expenses")
 @RequiredArgsConstructor
 public class ExpenseController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_FLUSH_EVERY = 100;
+
     private final ExpenseService expenseService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
-    public Expense createExpense(@RequestBody @Valid ExpenseRequestDTO dto) {
+    public ExpenseView createExpense(@RequestBody @Valid ExpenseRequestDTO dto) {
         return expenseService.createExpense(dto);
     }
 
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteExpense(@PathVariable Long id) {
+        expenseService.deleteMyExpense(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Delta sync: expenses created, updated or deleted after {@code since}, oldest change
+     * first. Start without {@code since} (the full history), then send back the returned
+     * {@code since} each time; repeat immediately while {@code hasMore}.
+     */
+    @GetMapping("/changes")
+    public ExpenseChangesDTO getChanges(@RequestParam(required = false) String since,
+                                        @RequestParam(defaultValue = "500") int size) {
+        return expenseService.getMyChanges(since, size);
+    }
+
+    /** Adds and removes tags across many expenses; see {@link RetagRequestDTO}. */
+    @PostMapping("/retag")
+    public RetagResult retag(@RequestBody @Valid RetagRequestDTO dto) {
+        return expenseService.retagMyExpenses(dto);
+    }
+
+    /** Newest first; follow {@code nextCursor} for older expenses. */
+    @UserDataETag
     @GetMapping
-    public List<Expense> getMine() {
-        return expenseService.getMyExpenses();
+    public CursorPage<ExpenseView> getMine(@RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "50") int size) {
+        return expenseService.getMyExpenses(cursor, size);
+    }
+
+    /**
+     * Filtered listing: any of {@code from}, {@code to}, {@code minAmount}, {@code maxAmount},
+     * {@code categoryIds}, {@code anyTags}, {@code allTags}, ordered by {@code sort=date|amount[,asc|desc]} (default newest first).
+     * Follow {@code nextCursor} with the same filters and sort.
+     */
+    @UserDataETag
+    @GetMapping("/search")
+    public CursorPage<ExpenseView> search(ExpenseFilter filter,
+                                          @RequestParam(required = false) String sort,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "50") int size) {
+        return expenseService.searchMyExpenses(filter, sort, cursor, size);
     }
 
+    /**
+     * Full-text search of titles and descriptions: every word in {@code q} must match, as a
+     * prefix ("cof sho" finds "Coffee shop"). Best matches first; follow {@code nextCursor}
+     * with the same {@code q}.
+     */
+    @UserDataETag
+    @GetMapping("/search/text")
+    public CursorPage<ExpenseSearchHit> textSearch(@RequestParam String q,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        return expenseService.textSearchMyExpenses(q, cursor, size);
+    }
+
+    /**
+     * Full history, streamed. {@code format=ndjson} writes one expense per line, otherwise a
+     * JSON array; either way rows are written as they are read, so memory use is flat.
+     */
+    @UserDataETag
+    @GetMapping("/stream")
+    public void streamMine(@RequestParam(defaultValue = "json") String format,
+                           HttpServletResponse response) throws IOException {
+        stream(response, format, expenseService::forEachOfMyExpenses);
+    }
+
+    // Stats endpoints take optional from/to (ISO dates, both inclusive) and scan only that window.
+    // @UserDataETag endpoints answer If-None-Match with 304 until the user's expenses change.
+    @UserDataETag
     @GetMapping("/total")
-    public ResponseEntity<Double> getTotalAmount() {
-        return ResponseEntity.ok(expenseService.getTotalAmount());
+    public ResponseEntity<Double> getTotalAmount(DateRange range) {
+        return ResponseEntity.ok(expenseService.getTotalAmount(range));
     }
 
+    /** The total, monthly, by-category and annual figures in one response and one query. */
+    @UserDataETag
+    @GetMapping("/dashboard")
+    public DashboardDTO getDashboard(DateRange range) {
+        return expenseService.getDashboard(range);
+    }
+
+    /** Monthly series with MoM/YoY deltas and a running total, plus each category's share. */
+    @UserDataETag
+    @GetMapping("/trends")
+    public TrendsDTO getTrends(DateRange range) {
+        return expenseService.getTrends(range);
+    }
+
+    @UserDataETag
     @GetMapping("/monthly")
-    public ResponseEntity<Page<MonthlyStatDTO>> getMonthlyStats(
-            @PageableDefault(size = 12, sort = "month", direction = Sort.Direction.DESC) Pageable pageable) {
-        return ResponseEntity.ok(expenseService.getMonthlyStats(pageable));
+    public ResponseEntity<PageResponse<MonthlyStatDTO>> getMonthlyStats(
+            DateRange range,
+            @PageableDefault(size = 12, sort = "month", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean count) {
+        return ResponseEntity.ok(PageResponse.of(expenseService.getMonthlyStats(range, pageable, count)));
     }
 
+    @UserDataETag
     @GetMapping("/by-category")
-    public ResponseEntity<Page<CategoryStatDTO>> getTotalByCategory(
-            @PageableDefault(size = 10, sort = "category", direction = Sort.Direction.DESC) Pageable pageable) {
-        return ResponseEntity.ok(expenseService.getTotalByCategory(pageable));
+    public ResponseEntity<PageResponse<CategoryStatDTO>> getTotalByCategory(
+            DateRange range,
+            @PageableDefault(size = 10, sort = "categoryName", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean count) {
+        return ResponseEntity.ok(PageResponse.of(expenseService.getTotalByCategory(range, pageable, count)));
     }
 
+    @UserDataETag
+    @GetMapping("/by-tag")
+    public ResponseEntity<PageResponse<TagStatDTO>> getTotalByTag(
+            DateRange range,
+            @PageableDefault(size = 10, sort = "totalAmount", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean count) {
+        return ResponseEntity.ok(PageResponse.of(expenseService.getTotalByTag(range, pageable, count)));
+    }
+
+    @UserDataETag
     @GetMapping("/annual")
-    public ResponseEntity<Page<AnnualStatDTO>> getAnnualStats(
-            @PageableDefault(size = 10, sort = "year", direction = Sort.Direction.DESC) Pageable pageable) {
-        return ResponseEntity.ok(expenseService.getAnnualStats(pageable));
+    public ResponseEntity<PageResponse<AnnualStatDTO>> getAnnualStats(
+            DateRange range,
+            @PageableDefault(size = 10, sort = "year", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean count) {
+        return ResponseEntity.ok(PageResponse.of(expenseService.getAnnualStats(range, pageable, count)));
     }
 
+    @UserDataETag
     @GetMapping("/annual/export")
-    public void exportAnnualStats(HttpServletResponse response) throws Exception {
+    public void exportAnnualStats(DateRange range, HttpServletResponse response) throws Exception {
         response.setContentType("text/csv");
         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=annual-stats.csv");
 
-        var stats = expenseService.getAnnualStats();
+        var stats = expenseService.getAnnualStats(range);
         var writer = response.getWriter();
         writer.println("Year,Total");
 
@@ -77,49 +197,88 @@ public class ExpenseController {
 
     @GetMapping("/admin/by-user")
     @PreAuthorize("hasRole('ADMIN')")
-    public List<Expense> adminGetByUser(@RequestParam Long userId) {
-        return expenseService.getExpensesByUserId(userId);
+    public CursorPage<ExpenseView> adminGetByUser(@RequestParam Long userId,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "50") int size) {
+        return expenseService.getExpensesByUserId(userId, cursor, size);
+    }
+
+    @GetMapping("/admin/by-user/stream")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void adminStreamByUser(@RequestParam Long userId,
+                                  @RequestParam(defaultValue = "json") String format,
+                                  HttpServletResponse response) throws IOException {
+        stream(response, format, action -> expenseService.forEachExpense(userId, action));
     }
 
     // ExpenseController.java
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/admin/total")
-    public ResponseEntity<Double> adminGetTotal(@RequestParam Long userId) {
-        return ResponseEntity.ok(expenseService.getTotalAmount(userId));
+    public ResponseEntity<Double> adminGetTotal(@RequestParam Long userId, DateRange range) {
+        return ResponseEntity.ok(expenseService.getTotalAmount(userId, range));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/dashboard")
+    public DashboardDTO adminGetDashboard(@RequestParam Long userId, DateRange range) {
+        return expenseService.getDashboard(userId, range);
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/trends")
+    public TrendsDTO adminGetTrends(@RequestParam Long userId, DateRange range) {
+        return expenseService.getTrends(userId, range);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/admin/monthly")
-    public ResponseEntity<Page<MonthlyStatDTO>> adminGetMonthly(
+    public ResponseEntity<PageResponse<MonthlyStatDTO>> adminGetMonthly(
             @RequestParam Long userId,
-            @PageableDefault(size = 12, sort = "month", direction = Sort.Direction.DESC) Pageable pageable) {
-        return ResponseEntity.ok(expenseService.getMonthlyStats(userId, pageable));
+            DateRange range,
+            @PageableDefault(size = 12, sort = "month", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean count) {
+        return ResponseEntity.ok(PageResponse.of(expenseService.getMonthlyStats(userId, range, pageable, count)));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/admin/by-category")
-    public ResponseEntity<Page<CategoryStatDTO>> adminGetByCategory(
+    public ResponseEntity<PageResponse<CategoryStatDTO>> adminGetByCategory(
+            @RequestParam Long userId,
+            DateRange range,
+            @PageableDefault(size = 10, sort = "categoryName", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean count) {
+        return ResponseEntity.ok(PageResponse.of(expenseService.getTotalByCategory(userId, range, pageable, count)));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/admin/by-tag")
+    public ResponseEntity<PageResponse<TagStatDTO>> adminGetByTag(
             @RequestParam Long userId,
-            @PageableDefault(size = 10, sort = "category", direction = Sort.Direction.DESC) Pageable pageable) {
-        return ResponseEntity.ok(expenseService.getTotalByCategory(userId, pageable));
+            DateRange range,
+            @PageableDefault(size = 10, sort = "totalAmount", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean count) {
+        return ResponseEntity.ok(PageResponse.of(expenseService.getTotalByTag(userId, range, pageable, count)));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/admin/annual")
-    public ResponseEntity<Page<AnnualStatDTO>> adminGetAnnual(
+    public ResponseEntity<PageResponse<AnnualStatDTO>> adminGetAnnual(
             @RequestParam Long userId,
-            @PageableDefault(size = 10, sort = "year", direction = Sort.Direction.DESC) Pageable pageable) {
-        return ResponseEntity.ok(expenseService.getAnnualStats(userId, pageable));
+            DateRange range,
+            @PageableDefault(size = 10, sort = "year", direction = Sort.Direction.DESC) Pageable pageable,
+            @RequestParam(defaultValue = "true") boolean count) {
+        return ResponseEntity.ok(PageResponse.of(expenseService.getAnnualStats(userId, range, pageable, count)));
     }
 
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/admin/annual/export")
-    public void adminExportAnnual(@RequestParam Long userId, HttpServletResponse response) throws Exception {
+    public void adminExportAnnual(@RequestParam Long userId, DateRange range,
+                                  HttpServletResponse response) throws Exception {
         response.setContentType("text/csv");
         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=annual-stats-" + userId + ".csv");
 
-        var stats = expenseService.getAnnualStats(userId);
+        var stats = expenseService.getAnnualStats(userId, range);
         var writer = response.getWriter();
         writer.println("Year,Total");
         for (var s : stats) {
@@ -129,6 +288,33 @@ public class ExpenseController {
 
     }
 
+    private void stream(HttpServletResponse response, String format,
+                        Consumer<Consumer<ExpenseView>> source) throws IOException {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        response.setContentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
 
-
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        // one line per row for NDJSON; the array form needs no separator handling of its own
+        gen.setRootValueSeparator(ndjson ? new SerializedString("\n") : null);
+        if (!ndjson) gen.writeStartArray();
+        int[] written = {0};
+        try {
+            source.accept(expense -> {
+                try {
+                    gen.writeObject(expense);
+                    if (++written[0] % STREAM_FLUSH_EVERY == 0) {
+                        gen.flush(); // push bytes out; a gone client surfaces here and stops the query
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // client disconnected: nothing more to send
+        }
+        if (!ndjson) gen.writeEndArray();
+        if (ndjson && written[0] > 0) gen.writeRaw('\n');
+        gen.close();
+    }
 }
@@ -1,5 +1,6 @@
 package com.manal.expensemanager.controller;
 
+import com.manal.expensemanager.dto.BatchUserResponse;
 import com.manal.expensemanager.dto.UserRequestDTO;
 import com.manal.expensemanager.model.User;
 import com.manal.expensemanager.service.UserService;
@@ -24,6 +25,12 @@ public class UserController {
         return ResponseEntity.status(201).body(createdUser);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchUserResponse> createUsers(@RequestBody List<UserRequestDTO> dtos) {
+        // Rows are validated one by one so a bad row is reported instead of failing the batch
+        return ResponseEntity.ok(userService.createUsers(dtos));
+    }
+
     @GetMapping
     public ResponseEntity<List<User>> getAllUsers() {
         return ResponseEntity.ok(userService.getAllUsers());
@@ -0,0 +1,16 @@
+package com.manal.expensemanager.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET endpoint whose response is a function of the current user's expenses only. Such
+ * responses get an ETag from the user's data version, and a matching {@code If-None-Match} is
+ * answered with 304 before the handler runs; see {@link UserDataETagInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface UserDataETag {
+}
@@ -0,0 +1,60 @@
+package com.manal.expensemanager.controller;
+
+import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.CurrentUser;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Optional;
+
+/**
+ * Conditional GET for {@link UserDataETag} endpoints. The ETag is the user id and their data
+ * version, which the expense triggers bump on every insert, update and delete. So while it
+ * matches, the response for a given URL is unchanged, and the 304 costs one primary-key lookup
+ * instead of the listing or aggregate behind it.
+ * <p>
+ * Responses are marked {@code private, no-cache}: clients keep them but revalidate on every use,
+ * and shared caches never store one user's figures. The same URL can be served as JSON, CBOR or
+ * Smile, so the tag also carries a digest of the {@code Accept} header and responses vary on it;
+ * a client switching formats never revalidates against bytes in the other encoding.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserDataETagInterceptor implements HandlerInterceptor {
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private final UserRepository userRepository;
+    private final CurrentUser currentUser;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method) || !method.hasMethodAnnotation(UserDataETag.class)
+                || !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))) {
+            return true;
+        }
+        Long userId = currentUser.id();
+        Optional<Long> version = userRepository.findDataVersionById(userId);
+        if (version.isEmpty()) {
+            return true;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = "\"" + userId + "." + version.get() + representation(request) + "\"";
+        // sets the ETag either way; true means a 304 has been prepared and the handler is skipped
+        return !new ServletWebRequest(request, response).checkNotModified(etag);
+    }
+
+    private static String representation(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept == null ? "" : "-" + Integer.toHexString(accept.hashCode());
+    }
+}
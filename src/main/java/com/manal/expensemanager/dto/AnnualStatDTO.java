@@ -2,6 +2,7 @@ package com.manal.expensemanager.dto;
 import lombok.*;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class AnnualStatDTO {
     private String year;
@@ -0,0 +1,23 @@
+package com.manal.expensemanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BatchUserResponse {
+    private int created;
+    private int failed;
+    private List<RowError> errors;
+
+    /** {@code index} is the position of the row in the request array. */
+    @Data
+    @AllArgsConstructor
+    public static class RowError {
+        private int index;
+        private String email;
+        private String error;
+    }
+}
@@ -0,0 +1,5 @@
+package com.manal.expensemanager.dto;
+
+/** A category's spend over the window and its share (0..1) of the window's total. */
+public record CategoryShareDTO(String categoryName, double total, double share) {
+}
@@ -3,6 +3,7 @@ package com.manal.expensemanager.dto;
 import lombok.*;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class CategoryStatDTO {
     private String categoryName;
@@ -0,0 +1,10 @@
+package com.manal.expensemanager.dto;
+
+import java.util.List;
+
+/** Everything the dashboard shows, computed together in one query. */
+public record DashboardDTO(Double total,
+                           List<MonthlyStatDTO> monthly,
+                           List<CategoryStatDTO> byCategory,
+                           List<AnnualStatDTO> annual) {
+}
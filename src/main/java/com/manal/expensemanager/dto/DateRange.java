@@ -0,0 +1,15 @@
+package com.manal.expensemanager.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Optional {@code from}/{@code to} query parameters of the stats endpoints; both ends are
+ * inclusive and either may be left open. Undated expenses fall outside any bounded range.
+ */
+public record DateRange(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+    public static final DateRange ALL = new DateRange(null, null);
+}
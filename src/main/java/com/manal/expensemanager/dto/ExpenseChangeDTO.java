@@ -0,0 +1,11 @@
+package com.manal.expensemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One entry of the delta-sync feed: the expense as it is now, or, when {@code deleted}, just
+ * its id.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ExpenseChangeDTO(long version, long id, boolean deleted, ExpenseView expense) {
+}
@@ -0,0 +1,10 @@
+package com.manal.expensemanager.dto;
+
+import java.util.List;
+
+/**
+ * Changes in version order. Store {@code since} and send it on the next sync; while
+ * {@code hasMore} is true, call again right away.
+ */
+public record ExpenseChangesDTO(List<ExpenseChangeDTO> changes, String since, boolean hasMore) {
+}
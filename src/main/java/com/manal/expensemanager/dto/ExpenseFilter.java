@@ -0,0 +1,21 @@
+package com.manal.expensemanager.dto;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Search criteria for {@code GET /api/expenses/search}; every field is optional and the set
+ * ones are ANDed. Dates and amounts are inclusive bounds. {@code categoryIds} matches any of
+ * the given categories ({@code categoryIds=1,2} or repeated); {@code anyTags} matches expenses
+ * carrying at least one of the tags, {@code allTags} those carrying every one.
+ */
+public record ExpenseFilter(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                            Double minAmount,
+                            Double maxAmount,
+                            Set<Long> categoryIds,
+                            Set<String> anyTags,
+                            Set<String> allTags) {
+}
@@ -5,12 +5,17 @@ import lombok.Data;
 import lombok.*;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class ExpenseRequestDTO {
 
+    // One word: letters, digits, '-' and '_'; matched case-insensitively
+    public static final String TAG_PATTERN = "[\\p{L}\\p{N}][\\p{L}\\p{N}_-]{0,39}";
+    public static final int MAX_TAGS = 20;
+
     @NotNull(message = "category ID is required")
     private Long categoryId;
 
@@ -25,4 +30,7 @@ public class ExpenseRequestDTO {
 
     @NotNull(message = "date is required")
     private LocalDate date;
+
+    @Size(max = MAX_TAGS, message = "at most 20 tags")
+    private List<@Pattern(regexp = TAG_PATTERN, message = "invalid tag") String> tags;
 }
@@ -0,0 +1,10 @@
+package com.manal.expensemanager.dto;
+
+/**
+ * One full-text match. Highlights are the stored text with matched words wrapped in
+ * {@code <mark>...</mark>}; the rest of the text is not escaped, so render it as text and only
+ * turn the markers into markup. {@code descriptionHighlight} is an excerpt, {@code null} when
+ * the expense has no description.
+ */
+public record ExpenseSearchHit(ExpenseView expense, float rank, String titleHighlight, String descriptionHighlight) {
+}
@@ -0,0 +1,19 @@
+package com.manal.expensemanager.dto;
+
+import com.manal.expensemanager.model.Expense;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read model for expense listings: the expense's own columns plus its category, fetched
+ * in one joined query. Deliberately carries no user; callers already know whose it is.
+ */
+public record ExpenseView(Long id, String title, String description, Double amount, LocalDate date,
+                          Long categoryId, String categoryName, List<String> tags) {
+
+    public static ExpenseView of(Expense e) {
+        return new ExpenseView(e.getId(), e.getTitle(), e.getDescription(), e.getAmount(), e.getDate(),
+                e.getCategory().getId(), e.getCategory().getName(), List.copyOf(e.getTags()));
+    }
+}
@@ -2,6 +2,7 @@ package com.manal.expensemanager.dto;
 import lombok.*;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class MonthlyStatDTO {
     private String month; // e.g., "2025-07"
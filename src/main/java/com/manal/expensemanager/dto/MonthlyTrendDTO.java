@@ -0,0 +1,13 @@
+package com.manal.expensemanager.dto;
+
+/**
+ * One calendar month of a trend series. Deltas are against the previous month and the same
+ * month a year earlier, absolute and as a ratio of that earlier total; they are {@code null}
+ * when the earlier month is outside the requested window (or the ratio's base is zero).
+ * Months without expenses are present with a total of 0.
+ */
+public record MonthlyTrendDTO(String month, double total,
+                              Double monthOverMonth, Double monthOverMonthRatio,
+                              Double yearOverYear, Double yearOverYearRatio,
+                              double cumulative) {
+}
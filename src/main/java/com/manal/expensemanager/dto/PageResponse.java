@@ -0,0 +1,23 @@
+package com.manal.expensemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * One page of an offset-paginated result. {@code totalElements} and {@code totalPages} are
+ * present only when the request asked for a count; {@code hasNext} is always there.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PageResponse<T>(List<T> content, int page, int size, boolean hasNext,
+                              Long totalElements, Integer totalPages) {
+
+    public static <T> PageResponse<T> of(Slice<T> slice) {
+        Page<T> counted = slice instanceof Page<T> page ? page : null;
+        return new PageResponse<>(slice.getContent(), slice.getNumber(), slice.getSize(), slice.hasNext(),
+                counted != null ? counted.getTotalElements() : null,
+                counted != null ? counted.getTotalPages() : null);
+    }
+}
@@ -0,0 +1,43 @@
+package com.manal.expensemanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.Set;
+
+import static com.manal.expensemanager.dto.ExpenseRequestDTO.TAG_PATTERN;
+
+/**
+ * Adds and removes tags on many expenses at once. Without {@code expenseIds} it applies to
+ * every expense carrying one of the {@code remove} tags, so renaming a tag is
+ * {@code {"remove":["old"],"add":["new"]}}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetagRequestDTO {
+
+    @Size(max = 1000, message = "at most 1000 expenses per request")
+    private Set<Long> expenseIds;
+
+    @Size(max = 20, message = "at most 20 tags")
+    private Set<@Pattern(regexp = TAG_PATTERN, message = "invalid tag") String> add;
+
+    @Size(max = 20, message = "at most 20 tags")
+    private Set<@Pattern(regexp = TAG_PATTERN, message = "invalid tag") String> remove;
+
+    @JsonIgnore
+    @AssertTrue(message = "add or remove at least one tag")
+    public boolean isChangingTags() {
+        return add != null && !add.isEmpty() || remove != null && !remove.isEmpty();
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "expenseIds is required when no tag is removed")
+    public boolean isScoped() {
+        return expenseIds != null && !expenseIds.isEmpty() || remove != null && !remove.isEmpty();
+    }
+}
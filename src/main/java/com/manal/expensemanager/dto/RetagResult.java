@@ -0,0 +1,9 @@
+package com.manal.expensemanager.dto;
+
+/**
+ * {@code updated}: expenses whose tags actually changed; ones that already matched are not
+ * rewritten. {@code skipped}: expenses left as they were because the change would have taken
+ * them past {@link ExpenseRequestDTO#MAX_TAGS} tags.
+ */
+public record RetagResult(int updated, int skipped) {
+}
@@ -0,0 +1,12 @@
+package com.manal.expensemanager.dto;
+
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagStatDTO {
+    private String tag;
+    private Double totalAmount;
+    private Long expenseCount;
+}
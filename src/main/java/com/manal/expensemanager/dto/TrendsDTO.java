@@ -0,0 +1,7 @@
+package com.manal.expensemanager.dto;
+
+import java.util.List;
+
+/** Period-over-period figures, computed in SQL in one statement. */
+public record TrendsDTO(List<MonthlyTrendDTO> months, List<CategoryShareDTO> categories) {
+}
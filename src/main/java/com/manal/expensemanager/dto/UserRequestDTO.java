@@ -2,6 +2,7 @@ package com.manal.expensemanager.dto;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.*;
 
@@ -20,4 +21,8 @@ public class UserRequestDTO {
 
     @NotBlank(message = "Role is required")
     private String role;
+
+    // Optional initial password; without one the account cannot log in until a password is set
+    @Size(min = 8, max = 72, message = "Password must be 8 to 72 characters")
+    private String password;
 }
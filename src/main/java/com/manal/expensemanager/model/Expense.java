@@ -2,14 +2,20 @@ package com.manal.expensemanager.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+// Indexes and the generated search_vector column are declared in db/migration: they need INCLUDE
+// columns, GIN and GENERATED ALWAYS, which the mapping cannot express. search_vector stays unmapped.
 @Data
 @Builder
 @Entity
 @NoArgsConstructor
 @AllArgsConstructor
-
 public class Expense {
 
     @Id
@@ -24,11 +30,19 @@ public class Expense {
     private Double amount;
     private LocalDate date;
 
-    @ManyToOne(optional = false)
+    // Free-form labels, stored lowercase, distinct and sorted as a text[]
+    @Builder.Default
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(nullable = false, columnDefinition = "text[]")
+    @ColumnDefault("'{}'")
+    private List<String> tags = new ArrayList<>();
+
+    // Lazy: listings read ExpenseView projections; entity reads say what they need via entity graphs
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 }
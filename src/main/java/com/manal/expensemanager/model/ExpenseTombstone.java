@@ -0,0 +1,24 @@
+package com.manal.expensemanager.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Marks a deleted expense for the delta-sync feed. Rows are written only by the
+ * {@code expense_record_tombstone} trigger (db/migration/V5), so every way of deleting an expense
+ * leaves one; the application only reads them.
+ */
+@Entity @Immutable @Getter @NoArgsConstructor
+@Table(indexes = @Index(name = "idx_expense_tombstone_user_version", columnList = "user_id, change_version, expense_id"))
+public class ExpenseTombstone {
+    @Id
+    private Long expenseId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    // Same scale as expense.change_version: the id of the deleting transaction
+    @Column(nullable = false)
+    private Long changeVersion;
+}
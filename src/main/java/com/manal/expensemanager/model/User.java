@@ -1,15 +1,22 @@
 package com.manal.expensemanager.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 @Data
 @Builder
 @Entity
 @Table(name = "users")
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"}) // serializable as a lazy reference
 @NoArgsConstructor
 @AllArgsConstructor
 
 public class User {
+    /** Stored for accounts created without a password: a {bcrypt} value no input can match. */
+    public static final String UNUSABLE_PASSWORD = "{bcrypt}!";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -24,8 +31,15 @@ public class User {
     @Column(nullable = false)
     private Role role;
 
+    @JsonIgnore // never serialize the hash
     @Column(nullable = false)
     private String password;
 
+    // Bumped by trigger (db/migration) whenever any of the user's expenses changes; never written here
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private Long dataVersion;
+
 
 }
@@ -0,0 +1,12 @@
+package com.manal.expensemanager.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** A bulk request with more rows than one call may carry. */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BatchTooLargeException extends IllegalArgumentException {
+    public BatchTooLargeException(String message) {
+        super(message);
+    }
+}
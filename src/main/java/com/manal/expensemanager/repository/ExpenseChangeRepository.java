@@ -0,0 +1,79 @@
+package com.manal.expensemanager.repository;
+
+import com.manal.expensemanager.dto.ExpenseChangeDTO;
+import com.manal.expensemanager.dto.ExpenseView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Delta-sync reads. A row's {@code change_version} is the id of the transaction that last wrote
+ * it, or deleted it for tombstones, stamped by the triggers in db/migration/V5.
+ * <p>
+ * Transaction ids are handed out in increasing order but commit in any order, so a feed that
+ * simply returned "everything above the highest version seen" would skip a row whose
+ * transaction started earlier and committed later. Reads are therefore capped at
+ * {@link #settledVersion()}: below it, every transaction has finished, and nothing new can
+ * appear. Both halves of the feed read their {@code (user_id, change_version, id)} index from
+ * the cursor onwards, at most {@code limit} entries each.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExpenseChangeRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** The oldest transaction still in progress; every version below it is final. */
+    public long settledVersion() {
+        return jdbc.queryForObject("SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint",
+                new MapSqlParameterSource(), Long.class);
+    }
+
+    /**
+     * @return the user's changes strictly after {@code (version, id)} and below {@code until},
+     * ordered by {@code (version, id)}
+     */
+    public List<ExpenseChangeDTO> changesAfter(Long userId, long version, long id, long until, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("version", version)
+                .addValue("id", id)
+                .addValue("until", until)
+                .addValue("limit", limit);
+        String sql = """
+                SELECT * FROM (
+                    SELECT e.change_version AS version, e.id, false AS deleted, e.title, e.description, e.amount,
+                           e.date, e.category_id, c.name AS category_name, e.tags
+                    FROM expense e JOIN category c ON c.id = e.category_id
+                    WHERE e.user_id = :userId AND (e.change_version, e.id) > (:version, :id)
+                      AND e.change_version < :until
+                    ORDER BY e.change_version, e.id
+                    LIMIT :limit
+                ) live
+                UNION ALL
+                SELECT * FROM (
+                    SELECT t.change_version, t.expense_id, true, NULL, NULL, NULL, NULL, NULL, NULL, NULL
+                    FROM expense_tombstone t
+                    WHERE t.user_id = :userId AND (t.change_version, t.expense_id) > (:version, :id)
+                      AND t.change_version < :until
+                    ORDER BY t.change_version, t.expense_id
+                    LIMIT :limit
+                ) gone
+                ORDER BY version, id
+                LIMIT :limit
+                """;
+        return jdbc.query(sql, params, (rs, i) -> {
+            long rowId = rs.getLong("id");
+            ExpenseView expense = rs.getBoolean("deleted") ? null
+                    : new ExpenseView(rowId, rs.getString("title"), rs.getString("description"),
+                            rs.getDouble("amount"), rs.getObject("date", LocalDate.class),
+                            rs.getLong("category_id"), rs.getString("category_name"),
+                            List.of((String[]) rs.getArray("tags").getArray()));
+            return new ExpenseChangeDTO(rs.getLong("version"), rowId, expense == null, expense);
+        });
+    }
+}
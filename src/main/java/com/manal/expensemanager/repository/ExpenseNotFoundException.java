@@ -0,0 +1,12 @@
+package com.manal.expensemanager.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** No expense with that id belongs to the caller; other users' expenses are reported the same way. */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ExpenseNotFoundException extends RuntimeException {
+    public ExpenseNotFoundException(Long id) {
+        super("Expense " + id + " not found");
+    }
+}
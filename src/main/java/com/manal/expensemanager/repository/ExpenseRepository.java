@@ -1,41 +1,58 @@
 package com.manal.expensemanager.repository;
 
-import com.manal.expensemanager.dto.CategoryStatDTO;
-import com.manal.expensemanager.dto.MonthlyStatDTO;
-import com.manal.expensemanager.dto.AnnualStatDTO;
+import com.manal.expensemanager.dto.ExpenseView;
 
 import com.manal.expensemanager.model.Expense;
 import com.manal.expensemanager.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, JpaSpecificationExecutor<Expense> {
+    @EntityGraph(attributePaths = "category")
     List<Expense> findByUser(User user);
 
-    @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.user.id = :userId")
-    Double getTotalAmountByUserId(@Param("userId") Long userId);
-
-    @Query("SELECT new com.manal.expensemanager.dto.CategoryStatDTO(e.category.name, SUM(e.amount)) " +
-            "FROM Expense e WHERE e.user.id = :userId GROUP BY e.category.name")
-    List<CategoryStatDTO> getTotalByCategory(@Param("userId") Long userId);
-
-    @Query(value = """
-    SELECT TO_CHAR(e.date, 'YYYY-MM') AS month, SUM(e.amount) AS totalAmount
-    FROM expense e
-    WHERE e.user_id = :userId
-    GROUP BY TO_CHAR(e.date, 'YYYY-MM')
-    ORDER BY month
-    """, nativeQuery = true)
-        List<Object[]> getMonthlyStats(@Param("userId") Long userId);
-
-
-    @Query(value = "SELECT EXTRACT(YEAR FROM e.date) AS year, SUM(e.amount) AS totalAmount " +
-            "FROM expense e WHERE e.user_id = :userId " +
-            "GROUP BY EXTRACT(YEAR FROM e.date) ORDER BY year", nativeQuery = true)
-    List<Object[]> getAnnualStats(@Param("userId") Long userId);
-
-
+    // One statement, no load first; the delete trigger records the tombstone
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.id = :id AND e.user.id = :userId")
+    int deleteOwned(@Param("id") Long id, @Param("userId") Long userId);
+
+    /*
+     * Keyset pages over (date DESC, id DESC), served by idx_expense_user_date_cover. "date <= :date"
+     * is the index range start and the OR only trims rows sharing the cursor's date, so every
+     * page costs the same however deep it is. Undated rows come last and are paged by id alone.
+     */
+    String VIEW = "SELECT new com.manal.expensemanager.dto.ExpenseView(" +
+            "e.id, e.title, e.description, e.amount, e.date, c.id, c.name, e.tags) " +
+            "FROM Expense e JOIN e.category c ";
+
+    @Query(VIEW + "WHERE e.user.id = :userId AND e.date IS NOT NULL ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseView> findFirstPage(@Param("userId") Long userId, Pageable limit);
+
+    @Query(VIEW + "WHERE e.user.id = :userId AND e.date <= :date AND (e.date < :date OR e.id < :id) " +
+            "ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseView> findPageAfter(@Param("userId") Long userId, @Param("date") LocalDate date,
+                                    @Param("id") long id, Pageable limit);
+
+    @Query(VIEW + "WHERE e.user.id = :userId AND e.date IS NULL AND e.id < :id ORDER BY e.id DESC")
+    List<ExpenseView> findUndatedPageAfter(@Param("userId") Long userId, @Param("id") long id, Pageable limit);
+
+    /**
+     * Full history as a cursor-backed stream: rows arrive from the driver {@code fetchSize} at a
+     * time instead of being materialized. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(VIEW + "WHERE e.user.id = :userId ORDER BY e.date DESC NULLS LAST, e.id DESC")
+    Stream<ExpenseView> streamByUserId(@Param("userId") Long userId);
 }
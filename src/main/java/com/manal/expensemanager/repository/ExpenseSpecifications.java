@@ -0,0 +1,83 @@
+package com.manal.expensemanager.repository;
+
+import com.manal.expensemanager.model.Expense;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Building blocks for expense search. Each one is a bare comparison on an indexed column (no
+ * functions over columns), so combinations stay sargable. Factories given {@code null}
+ * return {@code null}, which {@link Specification#and} ignores.
+ */
+public final class ExpenseSpecifications {
+
+    private ExpenseSpecifications() {
+    }
+
+    public static Specification<Expense> ownedBy(Long userId) {
+        return (root, query, cb) -> cb.equal(root.get("user").get("id"), userId);
+    }
+
+    public static Specification<Expense> dateFrom(LocalDate from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("date"), from);
+    }
+
+    /** Inclusive of {@code to}, written as a half-open bound. */
+    public static Specification<Expense> dateTo(LocalDate to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThan(root.get("date"), to.plusDays(1));
+    }
+
+    public static Specification<Expense> amountAtLeast(Double min) {
+        return min == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("amount"), min);
+    }
+
+    public static Specification<Expense> amountAtMost(Double max) {
+        return max == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("amount"), max);
+    }
+
+    public static Specification<Expense> inCategories(Collection<Long> categoryIds) {
+        return categoryIds == null || categoryIds.isEmpty() ? null
+                : (root, query, cb) -> root.get("category").get("id").in(categoryIds);
+    }
+
+    /** {@code tags && :tags}, answered by the (user_id, tags) GIN index. */
+    public static Specification<Expense> anyTags(Collection<String> tags) {
+        return tags == null || tags.isEmpty() ? null
+                : (root, query, cb) -> ((HibernateCriteriaBuilder) cb).collectionOverlaps(root.<List<String>>get("tags"), tags);
+    }
+
+    /** {@code tags @> :tags}, answered by the same index. */
+    public static Specification<Expense> allTags(Collection<String> tags) {
+        return tags == null || tags.isEmpty() ? null
+                : (root, query, cb) -> ((HibernateCriteriaBuilder) cb).collectionContainsAll(root.<List<String>>get("tags"), tags);
+    }
+
+    /**
+     * Rows strictly after {@code (last, lastId)} in {@code (key, id)} order, both in the same
+     * direction. The leading {@code key <= last} (or {@code >=}) is the index range start; the OR
+     * only trims rows tied on {@code last}. NULL keys follow Postgres' default placement: first
+     * when descending, last when ascending.
+     */
+    public static <T extends Comparable<? super T>> Specification<Expense> after(String key, T last, long lastId,
+                                                                                boolean descending) {
+        return (root, query, cb) -> {
+            Path<T> k = root.get(key);
+            Path<Long> id = root.get("id");
+            Predicate idBeyond = descending ? cb.lessThan(id, lastId) : cb.greaterThan(id, lastId);
+            if (last == null) {
+                Predicate restOfNulls = cb.and(cb.isNull(k), idBeyond);
+                return descending ? cb.or(restOfNulls, cb.isNotNull(k)) : restOfNulls;
+            }
+            Predicate next = descending
+                    ? cb.and(cb.lessThanOrEqualTo(k, last), cb.or(cb.lessThan(k, last), idBeyond))
+                    : cb.and(cb.greaterThanOrEqualTo(k, last), cb.or(cb.greaterThan(k, last), idBeyond));
+            return descending ? next : cb.or(next, cb.isNull(k));
+        };
+    }
+}
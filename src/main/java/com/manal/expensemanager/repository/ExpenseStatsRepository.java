@@ -0,0 +1,251 @@
+package com.manal.expensemanager.repository;
+
+import com.manal.expensemanager.dto.AnnualStatDTO;
+import com.manal.expensemanager.dto.CategoryShareDTO;
+import com.manal.expensemanager.dto.CategoryStatDTO;
+import com.manal.expensemanager.dto.DashboardDTO;
+import com.manal.expensemanager.dto.DateRange;
+import com.manal.expensemanager.dto.MonthlyStatDTO;
+import com.manal.expensemanager.dto.MonthlyTrendDTO;
+import com.manal.expensemanager.dto.TagStatDTO;
+import com.manal.expensemanager.dto.TrendsDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Paged per-user aggregates. Ordering and LIMIT/OFFSET run in Postgres, so a page transfers
+ * only its own buckets; the total is a separate count of groups that computes no sums and is
+ * skipped when the first page already shows everything, or entirely for count-free slices.
+ * <p>
+ * A {@link DateRange} becomes plain {@code e.date >= :from AND e.date < :until} predicates on
+ * the bare column, appended only for the ends that are set, so the {@code (user_id, date, id)}
+ * index bounds the scan to the window instead of the user's whole history.
+ * <p>
+ * Sort properties are the DTO field names and are mapped through a fixed allowlist, never
+ * spliced into SQL as given. Ties and undated buckets are ordered deterministically so pages
+ * do not overlap.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExpenseStatsRepository {
+
+    private static final String MONTH = "date_trunc('month', e.date)";
+    private static final String YEAR = "date_trunc('year', e.date)";
+
+    private static final Map<String, String> MONTHLY_SORT = Map.of("month", "month", "totalAmount", "total_amount");
+    private static final Map<String, String> CATEGORY_SORT = Map.of("categoryName", "category_name", "totalAmount", "total_amount");
+    private static final Map<String, String> ANNUAL_SORT = Map.of("year", "year", "totalAmount", "total_amount");
+    private static final Map<String, String> TAG_SORT = Map.of("tag", "tag", "totalAmount", "total_amount",
+            "expenseCount", "expense_count");
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public Double total(Long userId, DateRange range) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        return jdbc.queryForObject("SELECT SUM(e.amount) FROM expense e WHERE " + where(userId, range, params),
+                params, Double.class);
+    }
+
+    public Slice<MonthlyStatDTO> monthly(Long userId, DateRange range, Pageable pageable, boolean count) {
+        return page("TO_CHAR(" + MONTH + ", 'YYYY-MM') AS month, SUM(e.amount) AS total_amount",
+                "expense e WHERE %s GROUP BY " + MONTH,
+                "month", MONTHLY_SORT, userId, range, pageable, count,
+                (rs, i) -> new MonthlyStatDTO(rs.getString("month"), rs.getDouble("total_amount")));
+    }
+
+    public Slice<CategoryStatDTO> byCategory(Long userId, DateRange range, Pageable pageable, boolean count) {
+        return page("c.name AS category_name, SUM(e.amount) AS total_amount",
+                "expense e JOIN category c ON c.id = e.category_id WHERE %s GROUP BY c.name",
+                "category_name", CATEGORY_SORT, userId, range, pageable, count,
+                (rs, i) -> new CategoryStatDTO(rs.getString("category_name"), rs.getDouble("total_amount")));
+    }
+
+    /**
+     * Sums per tag. An expense counts towards each of its tags, so the buckets can add up to
+     * more than the total; untagged expenses are in none.
+     */
+    public Slice<TagStatDTO> byTag(Long userId, DateRange range, Pageable pageable, boolean count) {
+        return page("t.tag AS tag, SUM(e.amount) AS total_amount, COUNT(*) AS expense_count",
+                "expense e CROSS JOIN LATERAL unnest(e.tags) AS t(tag) WHERE %s GROUP BY t.tag",
+                "tag", TAG_SORT, userId, range, pageable, count,
+                (rs, i) -> new TagStatDTO(rs.getString("tag"), rs.getDouble("total_amount"), rs.getLong("expense_count")));
+    }
+
+    public Slice<AnnualStatDTO> annual(Long userId, DateRange range, Pageable pageable, boolean count) {
+        return page("TO_CHAR(" + YEAR + ", 'YYYY') AS year, SUM(e.amount) AS total_amount",
+                "expense e WHERE %s GROUP BY " + YEAR,
+                "year", ANNUAL_SORT, userId, range, pageable, count,
+                (rs, i) -> new AnnualStatDTO(rs.getString("year"), rs.getDouble("total_amount")));
+    }
+
+    /**
+     * Total, per-month, per-category and per-year sums in a single pass over the user's rows:
+     * one statement, so one scan and one snapshot. GROUPING() tells the sets apart, including
+     * the undated month/year buckets whose label is NULL like the grand total's.
+     */
+    public DashboardDTO dashboard(Long userId, DateRange range) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = "SELECT GROUPING(" + MONTH + ", c.name, " + YEAR + ") AS grouping_set, " +
+                "TO_CHAR(" + MONTH + ", 'YYYY-MM') AS month, c.name AS category_name, " +
+                "TO_CHAR(" + YEAR + ", 'YYYY') AS year, SUM(e.amount) AS total_amount " +
+                "FROM expense e JOIN category c ON c.id = e.category_id " +
+                "WHERE " + where(userId, range, params) + " " +
+                "GROUP BY GROUPING SETS ((" + MONTH + "), (c.name), (" + YEAR + "), ()) " +
+                "ORDER BY grouping_set, " + MONTH + " NULLS LAST, c.name, " + YEAR + " NULLS LAST";
+
+        Double[] total = {null};
+        List<MonthlyStatDTO> monthly = new ArrayList<>();
+        List<CategoryStatDTO> byCategory = new ArrayList<>();
+        List<AnnualStatDTO> annual = new ArrayList<>();
+        jdbc.query(sql, params, rs -> {
+            double sum = rs.getDouble("total_amount");
+            // one bit per GROUPING() argument, set when the row is aggregated over it
+            switch (rs.getInt("grouping_set")) {
+                case 0b011 -> monthly.add(new MonthlyStatDTO(rs.getString("month"), sum));
+                case 0b101 -> byCategory.add(new CategoryStatDTO(rs.getString("category_name"), sum));
+                case 0b110 -> annual.add(new AnnualStatDTO(rs.getString("year"), sum));
+                case 0b111 -> total[0] = rs.getObject("total_amount", Double.class); // NULL when no rows
+                default -> throw new IllegalStateException("Unexpected grouping set " + rs.getInt("grouping_set"));
+            }
+        });
+        return new DashboardDTO(total[0], monthly, byCategory, annual);
+    }
+
+    /**
+     * Month-over-month and year-over-year deltas, a running total, and each category's share,
+     * from one statement. The user's rows are aggregated once into (month, category) cells,
+     * which both halves read. Months are gap-filled with generate_series so that LAG(1) and
+     * LAG(12) really mean the previous month and the same month a year earlier.
+     */
+    public TrendsDTO trends(Long userId, DateRange range) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = """
+                WITH cells AS (
+                    SELECT %1$s AS month, c.name AS category, SUM(e.amount) AS amount
+                    FROM expense e JOIN category c ON c.id = e.category_id
+                    WHERE %2$s AND e.date IS NOT NULL
+                    GROUP BY %1$s, c.name
+                ), months AS (
+                    SELECT m.month, COALESCE(SUM(cells.amount), 0) AS total
+                    FROM generate_series((SELECT MIN(month) FROM cells), (SELECT MAX(month) FROM cells),
+                                         INTERVAL '1 month') AS m(month)
+                    LEFT JOIN cells ON cells.month = m.month
+                    GROUP BY m.month
+                ), series AS (
+                    SELECT month, total,
+                           LAG(total) OVER w AS prev_month,
+                           LAG(total, 12) OVER w AS prev_year,
+                           SUM(total) OVER w AS cumulative
+                    FROM months
+                    WINDOW w AS (ORDER BY month)
+                )
+                SELECT 'month' AS kind, TO_CHAR(month, 'YYYY-MM') AS label, total,
+                       total - prev_month AS mom, (total - prev_month) / NULLIF(prev_month, 0) AS mom_ratio,
+                       total - prev_year AS yoy, (total - prev_year) / NULLIF(prev_year, 0) AS yoy_ratio,
+                       cumulative, NULL::float8 AS share
+                FROM series
+                UNION ALL
+                SELECT 'category', category, SUM(amount), NULL, NULL, NULL, NULL, NULL,
+                       SUM(amount) / NULLIF(SUM(SUM(amount)) OVER (), 0)
+                FROM cells
+                GROUP BY category
+                ORDER BY kind DESC, label
+                """.formatted(MONTH, where(userId, range, params));
+
+        List<MonthlyTrendDTO> months = new ArrayList<>();
+        List<CategoryShareDTO> categories = new ArrayList<>();
+        jdbc.query(sql, params, rs -> {
+            if ("month".equals(rs.getString("kind"))) {
+                months.add(new MonthlyTrendDTO(rs.getString("label"), rs.getDouble("total"),
+                        rs.getObject("mom", Double.class), rs.getObject("mom_ratio", Double.class),
+                        rs.getObject("yoy", Double.class), rs.getObject("yoy_ratio", Double.class),
+                        rs.getDouble("cumulative")));
+            } else {
+                categories.add(new CategoryShareDTO(rs.getString("label"), rs.getDouble("total"),
+                        rs.getDouble("share")));
+            }
+        });
+        return new TrendsDTO(months, categories);
+    }
+
+    /**
+     * @param select  the aggregate's select list
+     * @param from    its FROM, WHERE and GROUP BY clauses, shared with the count; {@code %s}
+     *                marks where the user and date predicates go
+     * @param key     the bucket column; default order and final tie-breaker
+     * @param count   whether to return a counted {@link Page}; otherwise a {@link Slice} is built
+     *                from one extra row, with no second query
+     */
+    private <T> Slice<T> page(String select, String from, String key, Map<String, String> sortable,
+                              Long userId, DateRange range, Pageable pageable, boolean count,
+                              RowMapper<T> mapper) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String source = from.formatted(where(userId, range, params));
+        StringBuilder sql = new StringBuilder("SELECT ").append(select).append(" FROM ").append(source)
+                .append(" ORDER BY ").append(orderBy(pageable.getSort(), key, sortable));
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT :limit OFFSET :offset");
+            params.addValue("limit", pageable.getPageSize() + (count ? 0 : 1)).addValue("offset", pageable.getOffset());
+        }
+        List<T> content = jdbc.query(sql.toString(), params, mapper);
+
+        if (!count) {
+            boolean hasNext = pageable.isPaged() && content.size() > pageable.getPageSize();
+            return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+        }
+        // Counts the groups without summing anything; only runs when the page alone can't tell
+        String total = "SELECT COUNT(*) FROM (SELECT 1 FROM " + source + ") g";
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> jdbc.queryForObject(total, params, Long.class));
+    }
+
+    // Half-open upper bound: "to" covers its whole day
+    private static String where(Long userId, DateRange range, MapSqlParameterSource params) {
+        if (range.from() != null && range.to() != null && range.from().isAfter(range.to())) {
+            throw new InvalidDateRangeException("'from' (" + range.from() + ") is after 'to' (" + range.to() + ")");
+        }
+        StringBuilder where = new StringBuilder("e.user_id = :userId");
+        params.addValue("userId", userId);
+        if (range.from() != null) {
+            where.append(" AND e.date >= :from");
+            params.addValue("from", range.from());
+        }
+        if (range.to() != null) {
+            where.append(" AND e.date < :until");
+            params.addValue("until", range.to().plusDays(1));
+        }
+        return where.toString();
+    }
+
+    private static String orderBy(Sort sort, String key, Map<String, String> sortable) {
+        List<String> terms = new ArrayList<>();
+        boolean keySorted = false;
+        for (Sort.Order order : sort) {
+            String column = sortable.get(order.getProperty());
+            if (column == null) {
+                throw new InvalidSortException("Cannot sort by '" + order.getProperty()
+                        + "'; allowed: " + String.join(", ", new TreeSet<>(sortable.keySet())));
+            }
+            terms.add(column + (order.isAscending() ? " ASC" : " DESC") + " NULLS LAST");
+            keySorted |= column.equals(key);
+        }
+        if (!keySorted) {
+            terms.add(key + " ASC NULLS LAST");
+        }
+        return String.join(", ", terms);
+    }
+}
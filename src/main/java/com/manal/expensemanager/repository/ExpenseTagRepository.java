@@ -0,0 +1,68 @@
+package com.manal.expensemanager.repository;
+
+import com.manal.expensemanager.dto.ExpenseRequestDTO;
+import com.manal.expensemanager.dto.RetagResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk tag changes as one UPDATE. The new array is computed in SQL (union with the added tags,
+ * minus the removed ones, kept distinct and sorted in code-point order, as {@code ExpenseTags}
+ * sorts them, whatever the database collation) and rows whose tags would not change are
+ * left alone, so they cost no new row version and no GIN maintenance. Rows the change would
+ * take past {@link ExpenseRequestDTO#MAX_TAGS} tags are left alone too, and counted.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExpenseTagRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * @param expenseIds the user's expenses to change; {@code null} or empty means every one
+     *                   carrying any of {@code remove}, found through the (user_id, tags) index
+     * @param add        normalized tags to add
+     * @param remove     normalized tags to remove; wins over {@code add}
+     * @return how many expenses changed, and how many were skipped for exceeding the tag limit
+     */
+    public RetagResult retag(Long userId, Collection<Long> expenseIds, List<String> add, List<String> remove) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("add", add.toArray(String[]::new))
+                .addValue("remove", remove.toArray(String[]::new))
+                .addValue("maxTags", ExpenseRequestDTO.MAX_TAGS);
+        String scope;
+        if (expenseIds != null && !expenseIds.isEmpty()) {
+            scope = "x.id IN (:ids)";
+            params.addValue("ids", expenseIds);
+        } else {
+            scope = "x.tags && CAST(:remove AS text[])";
+        }
+        String sql = """
+                WITH n AS (
+                    SELECT x.id, ARRAY(SELECT DISTINCT t FROM unnest(x.tags || CAST(:add AS text[])) AS u(t)
+                                       WHERE t <> ALL (CAST(:remove AS text[])) ORDER BY t COLLATE "C") AS tags,
+                           x.tags AS old_tags
+                    FROM expense x
+                    WHERE x.user_id = :userId AND %s
+                ), changed AS (
+                    SELECT id, tags, cardinality(tags) <= :maxTags AS fits
+                    FROM n WHERE old_tags IS DISTINCT FROM tags
+                ), updated AS (
+                    UPDATE expense e SET tags = c.tags
+                    FROM changed c
+                    WHERE e.id = c.id AND c.fits
+                    RETURNING e.id
+                )
+                SELECT (SELECT count(*) FROM updated) AS updated,
+                       (SELECT count(*) FROM changed WHERE NOT fits) AS skipped
+                """.formatted(scope);
+        return jdbc.queryForObject(sql, params,
+                (rs, i) -> new RetagResult(rs.getInt("updated"), rs.getInt("skipped")));
+    }
+}
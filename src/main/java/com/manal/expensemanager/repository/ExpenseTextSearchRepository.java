@@ -0,0 +1,96 @@
+package com.manal.expensemanager.repository;
+
+import com.manal.expensemanager.dto.ExpenseSearchHit;
+import com.manal.expensemanager.dto.ExpenseView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Ranked full-text search over a user's expenses, on the generated {@code search_vector} column
+ * and the {@code (user_id, search_vector)} GIN index (see db/migration).
+ * <p>
+ * Search text is never passed to Postgres' query parser as typed: it is split into words, and
+ * each word of two or more characters becomes a prefix term, all of them required. Matches are
+ * ordered by rank, then id, and paged by keyset on that pair. Highlights are only computed for
+ * the rows of the page, after the LIMIT, because ts_headline re-parses the text.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExpenseTextSearchRepository {
+
+    // Bounds the work per query; later words rarely narrow the result much further
+    private static final int MAX_TERMS = 8;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final String TITLE_HEADLINE = "StartSel=<mark>, StopSel=</mark>, HighlightAll=true";
+    private static final String DESCRIPTION_HEADLINE =
+            "StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=20, MinWords=5, FragmentDelimiter=\" … \"";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /**
+     * @param afterRank rank of the last hit already served, or {@code null} for the first page
+     * @param afterId   id of that hit; breaks rank ties
+     */
+    public List<ExpenseSearchHit> search(Long userId, String text, Float afterRank, Long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("query", toPrefixQuery(text))
+                .addValue("limit", limit);
+        String keyset = "";
+        if (afterRank != null) {
+            keyset = "AND (ts_rank(e.search_vector, q.query), e.id) < (CAST(:rank AS real), :id)";
+            params.addValue("rank", afterRank).addValue("id", afterId);
+        }
+        String sql = """
+                SELECT m.id, m.title, m.description, m.amount, m.date, m.category_id, c.name AS category_name, m.tags,
+                       m.rank,
+                       ts_headline('simple', m.title, m.query, '%1$s') AS title_highlight,
+                       CASE WHEN m.description IS NOT NULL
+                            THEN ts_headline('simple', m.description, m.query, '%2$s') END AS description_highlight
+                FROM (
+                    SELECT e.id, e.title, e.description, e.amount, e.date, e.category_id, e.tags, q.query,
+                           ts_rank(e.search_vector, q.query) AS rank
+                    FROM expense e CROSS JOIN to_tsquery('simple', :query) AS q(query)
+                    WHERE e.user_id = :userId AND e.search_vector @@ q.query %3$s
+                    ORDER BY rank DESC, e.id DESC
+                    LIMIT :limit
+                ) m JOIN category c ON c.id = m.category_id
+                ORDER BY m.rank DESC, m.id DESC
+                """.formatted(TITLE_HEADLINE, DESCRIPTION_HEADLINE, keyset);
+
+        return jdbc.query(sql, params, (rs, i) -> new ExpenseSearchHit(
+                new ExpenseView(rs.getLong("id"), rs.getString("title"), rs.getString("description"),
+                        rs.getDouble("amount"), rs.getObject("date", LocalDate.class),
+                        rs.getLong("category_id"), rs.getString("category_name"),
+                        List.of((String[]) rs.getArray("tags").getArray())),
+                rs.getFloat("rank"), rs.getString("title_highlight"), rs.getString("description_highlight")));
+    }
+
+    /**
+     * "Coffee sh" becomes {@code coffee:* & sh:*}. Only letters and digits survive, so the
+     * result is always valid tsquery syntax. One-character words are matched whole: as prefixes
+     * they would match most of a user's history.
+     */
+    static String toPrefixQuery(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : NON_WORD.split(text == null ? "" : text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty() && words.size() < MAX_TERMS) {
+                words.add(word);
+            }
+        }
+        if (words.isEmpty()) {
+            throw new InvalidSearchQueryException("Search text must contain at least one letter or digit");
+        }
+        return String.join(" & ", words.stream().map(w -> w.length() > 1 ? w + ":*" : w).toList());
+    }
+}
@@ -0,0 +1,15 @@
+package com.manal.expensemanager.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A {@code cursor} (or delta-sync {@code since}) request parameter that was not issued by this
+ * server, or has been tampered with.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidCursorException extends IllegalArgumentException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.manal.expensemanager.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** A {@code from}/{@code to} pair that selects nothing because it is reversed. */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidDateRangeException extends IllegalArgumentException {
+    public InvalidDateRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.manal.expensemanager.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** Full-text search text that contains nothing searchable. */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSearchQueryException extends IllegalArgumentException {
+    public InvalidSearchQueryException(String message) {
+        super(message);
+    }
+}
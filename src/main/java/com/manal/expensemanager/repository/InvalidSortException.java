@@ -0,0 +1,12 @@
+package com.manal.expensemanager.repository;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** A {@code sort} request parameter named a property the endpoint cannot order by. */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidSortException extends IllegalArgumentException {
+    public InvalidSortException(String message) {
+        super(message);
+    }
+}
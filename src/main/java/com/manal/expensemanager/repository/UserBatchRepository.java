@@ -0,0 +1,39 @@
+package com.manal.expensemanager.repository;
+
+import com.manal.expensemanager.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Plain-JDBC batch inserts for bulk provisioning. JPA with IDENTITY ids cannot batch
+ * inserts (each one needs its generated key back), so this goes around it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserBatchRepository {
+
+    private static final String INSERT =
+            "INSERT INTO users (full_name, email, role, password) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (email) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts {@code users} in one JDBC batch and transaction.
+     *
+     * @return per user, 1 if inserted or 0 if the email was taken in the meantime
+     */
+    @Transactional
+    public int[] insertIgnoringDuplicates(List<User> users) {
+        return jdbcTemplate.batchUpdate(INSERT, users, users.size(), (ps, u) -> {
+            ps.setString(1, u.getFullName());
+            ps.setString(2, u.getEmail());
+            ps.setString(3, u.getRole().name());
+            ps.setString(4, u.getPassword());
+        })[0];
+    }
+}
@@ -0,0 +1,54 @@
+package com.manal.expensemanager.security;
+
+import com.manal.expensemanager.model.Role;
+import com.manal.expensemanager.model.User;
+import lombok.Getter;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal placed in the security context. Carries the user id and basic profile so
+ * request handling never has to resolve the email back to a row. {@code password} is only populated
+ * while authenticating a login and is erased afterwards.
+ */
+@Getter
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+
+    private final Long id;
+    private final String email;
+    private final String fullName;
+    private final Role role;
+    private String password;
+
+    public AuthenticatedUser(Long id, String email, String fullName, Role role, String password) {
+        this.id = id;
+        this.email = email;
+        this.fullName = fullName;
+        this.role = role;
+        this.password = password;
+    }
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getFullName(), user.getRole(), user.getPassword());
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public void eraseCredentials() {
+        password = null;
+    }
+}
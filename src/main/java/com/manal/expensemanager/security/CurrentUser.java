@@ -3,20 +3,60 @@ package com.manal.expensemanager.security;
 import com.manal.expensemanager.model.User;
 import com.manal.expensemanager.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+/**
+ * Access to the authenticated user. {@link #id()} and {@link #email()} are answered from
+ * the principal without touching the database; {@link #get()} loads the entity at most
+ * once per request.
+ */
 @Component
 @RequiredArgsConstructor
 public class CurrentUser {
+    private static final String REQUEST_ATTR = CurrentUser.class.getName() + ".user";
+
     private final UserRepository userRepository;
 
     public User get() {
-        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return load();
+        }
+        User cached = (User) request.getAttribute(REQUEST_ATTR, RequestAttributes.SCOPE_REQUEST);
+        if (cached == null) {
+            cached = load();
+            request.setAttribute(REQUEST_ATTR, cached, RequestAttributes.SCOPE_REQUEST);
+        }
+        return cached;
+    }
+
+    /** Lazy reference for writes that only need the foreign key. */
+    public User reference() {
+        return userRepository.getReferenceById(id());
+    }
+
+    /** The id-carrying principal, or {@code null} when authenticated some other way. */
+    public AuthenticatedUser principal() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof AuthenticatedUser p ? p : null;
+    }
+
+    public Long id() {
+        AuthenticatedUser principal = principal();
+        return principal != null ? principal.getId() : get().getId();
+    }
+
+    public String email() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+
+    private User load() {
+        String email = email();
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new IllegalStateException("Authenticated user not found"));
     }
-
-    public Long id() { return get().getId(); }
-    public String email() { return get().getEmail(); }
 }
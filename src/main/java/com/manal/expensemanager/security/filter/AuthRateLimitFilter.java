@@ -0,0 +1,193 @@
+package com.manal.expensemanager.security.filter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manal.expensemanager.security.ratelimit.TokenBucketLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.*;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles the credential endpoints before they reach BCrypt or the database: every
+ * request spends a token from its client IP's bucket, then one from the bucket of the
+ * email in its body. An empty bucket is answered with 429 and {@code Retry-After}.
+ * <p>
+ * Once either limiter tracks {@code max-keys} keys, new IPs share a few striped buckets, and
+ * new emails are not limited by email at all: their requests still spend IP tokens, while a
+ * shared email bucket would let anyone spraying addresses lock out every other login.
+ */
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final Set<String> LIMITED_PATHS = Set.of("/api/auth/login", "/api/auth/signup");
+    private static final int MAX_INSPECTED_BODY = 16 * 1024;
+    private static final int IP_OVERFLOW_BUCKETS = 64;
+
+    private final boolean enabled;
+    private final TokenBucketLimiter byIp;
+    private final TokenBucketLimiter byEmail;
+    private final ObjectMapper objectMapper;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedByEmail = new LongAdder();
+
+    @Autowired
+    public AuthRateLimitFilter(@Value("${auth.ratelimit.enabled:true}") boolean enabled,
+                               @Value("${auth.ratelimit.ip.capacity:20}") int ipCapacity,
+                               @Value("${auth.ratelimit.ip.refill-period:3s}") Duration ipRefill,
+                               @Value("${auth.ratelimit.email.capacity:5}") int emailCapacity,
+                               @Value("${auth.ratelimit.email.refill-period:12s}") Duration emailRefill,
+                               @Value("${auth.ratelimit.max-keys:100000}") int maxKeys,
+                               ObjectMapper objectMapper) {
+        this(enabled,
+                new TokenBucketLimiter(ipCapacity, ipRefill, maxKeys, IP_OVERFLOW_BUCKETS, Clock.systemUTC()),
+                new TokenBucketLimiter(emailCapacity, emailRefill, maxKeys, 0, Clock.systemUTC()),
+                objectMapper);
+    }
+
+    public AuthRateLimitFilter(boolean enabled, TokenBucketLimiter byIp, TokenBucketLimiter byEmail,
+                               ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.byIp = byIp;
+        this.byEmail = byEmail;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !"POST".equals(request.getMethod())
+                || !LIMITED_PATHS.contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        long waitMs = byIp.tryAcquire(request.getRemoteAddr());
+        if (waitMs > 0) {
+            rejectedByIp.increment();
+            reject(response, waitMs);
+            return;
+        }
+
+        BufferedBodyRequest buffered = new BufferedBodyRequest(request);
+        String email = emailOf(buffered.prefix);
+        if (email != null) {
+            waitMs = byEmail.tryAcquire(email);
+            if (waitMs > 0) {
+                rejectedByEmail.increment();
+                reject(response, waitMs);
+                return;
+            }
+        }
+
+        allowed.increment();
+        filterChain.doFilter(buffered, response);
+    }
+
+    @Scheduled(fixedDelayString = "PT1M")
+    public void evictIdleBuckets() {
+        byIp.evictIdle();
+        byEmail.evictIdle();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("auth.ratelimit.requests", allowed, LongAdder::sum)
+                .tag("result", "allowed")
+                .register(registry);
+        FunctionCounter.builder("auth.ratelimit.requests", rejectedByIp, LongAdder::sum)
+                .tag("result", "rejected").tag("key", "ip")
+                .register(registry);
+        FunctionCounter.builder("auth.ratelimit.requests", rejectedByEmail, LongAdder::sum)
+                .tag("result", "rejected").tag("key", "email")
+                .register(registry);
+        Gauge.builder("auth.ratelimit.buckets", byIp, TokenBucketLimiter::size)
+                .tag("key", "ip")
+                .register(registry);
+        Gauge.builder("auth.ratelimit.buckets", byEmail, TokenBucketLimiter::size)
+                .tag("key", "email")
+                .register(registry);
+    }
+
+    private void reject(HttpServletResponse response, long waitMs) throws IOException {
+        response.setStatus(429);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, (waitMs + 999) / 1000)));
+        response.getWriter().write("Too many requests");
+    }
+
+    private String emailOf(byte[] body) {
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText().trim().toLowerCase(Locale.ROOT) : null;
+        } catch (IOException | RuntimeException e) {
+            return null; // malformed or oversized body: only the IP limit applies, validation rejects it later
+        }
+    }
+
+    /** Reads the first {@value #MAX_INSPECTED_BODY} bytes up front and replays them downstream. */
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] prefix;
+        private ServletInputStream stream;
+
+        BufferedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.prefix = request.getInputStream().readNBytes(MAX_INSPECTED_BODY);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) {
+                stream = replay();
+            }
+            return stream;
+        }
+
+        private ServletInputStream replay() throws IOException {
+            InputStream replay = new SequenceInputStream(new ByteArrayInputStream(prefix), super.getInputStream());
+            return new ServletInputStream() {
+                @Override public int read() throws IOException { return replay.read(); }
+                @Override public int read(byte[] b, int off, int len) throws IOException { return replay.read(b, off, len); }
+                @Override public boolean isFinished() {
+                    try {
+                        return replay.available() == 0;
+                    } catch (IOException e) {
+                        return true;
+                    }
+                }
+                @Override public boolean isReady() { return true; }
+                @Override public void setReadListener(ReadListener listener) { throw new UnsupportedOperationException(); }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : "UTF-8";
+            return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+    }
+}
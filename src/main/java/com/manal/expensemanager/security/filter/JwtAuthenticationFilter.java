@@ -1,6 +1,9 @@
 package com.manal.expensemanager.security.filter;
 
+import com.manal.expensemanager.security.jwt.JwtClaims;
 import com.manal.expensemanager.security.jwt.JwtService;
+import com.manal.expensemanager.security.revocation.AccessTokenDenylist;
+import com.manal.expensemanager.security.service.TokenPrincipalResolver;
 import com.manal.expensemanager.security.service.UserDetailsServiceImpl;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
@@ -9,7 +12,9 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -22,6 +27,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsServiceImpl userDetailsService;
+    private final TokenPrincipalResolver principalResolver;
+    private final AccessTokenDenylist denylist;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -43,10 +50,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String jwt = authHeader.substring(7);
-        String userEmail;
+        JwtClaims claims;
 
         try {
-            userEmail = jwtService.extractUsername(jwt);
+            claims = jwtService.verify(jwt);
         } catch (ExpiredJwtException e) {
             // Optional: respond 401 instead of throwing 403 later
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -57,14 +64,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        // Logged-out tokens: a Bloom-filter miss (the usual case) costs no query
+        if (denylist.isRevoked(claims.tokenId())) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("Token revoked");
+            return;
+        }
+
+        // Signature and expiry were checked by verify(); no need to parse the token again.
+        String userEmail = claims.subject();
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            var userDetails = userDetailsService.loadUserByUsername(userEmail);
-            if (jwtService.isTokenValid(jwt, userDetails.getUsername())) {
-                var authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+            UserDetails userDetails;
+            if (principalResolver.supports(claims)) {
+                // Stateless mode: id and role come from the token, no user query per request
+                userDetails = principalResolver.resolve(claims);
+                if (userDetails == null) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+            } else {
+                var loaded = userDetailsService.loadUserByUsername(userEmail);
+                if (loaded instanceof CredentialsContainer c) {
+                    c.eraseCredentials(); // the hash has no business living in the request context
+                }
+                userDetails = loaded;
             }
+            var authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
         }
 
         filterChain.doFilter(request, response);
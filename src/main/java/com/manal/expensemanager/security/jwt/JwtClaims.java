@@ -0,0 +1,39 @@
+package com.manal.expensemanager.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * Immutable view of a verified access token. Produced once per request by
+ * {@link JwtService#verify(String)} so callers never re-parse the token.
+ */
+public record JwtClaims(String subject, Long userId, String role, String fullName,
+                        Instant issuedAt, Instant expiresAt, String tokenId) {
+
+    static final String USER_ID = "uid";
+    static final String ROLE = "role";
+    static final String FULL_NAME = "name";
+
+    static JwtClaims from(Claims claims) {
+        Number uid = claims.get(USER_ID, Number.class);
+        return new JwtClaims(
+                claims.getSubject(),
+                uid != null ? uid.longValue() : null,
+                claims.get(ROLE, String.class),
+                claims.get(FULL_NAME, String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                claims.getId()
+        );
+    }
+
+    /** True when the token carries enough to build a principal without a user lookup. */
+    public boolean hasIdentity() {
+        return userId != null && role != null;
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt != null && expiresAt.isBefore(now);
+    }
+}
@@ -1,52 +1,110 @@
 package com.manal.expensemanager.security.jwt;
 
+import com.manal.expensemanager.model.User;
+import com.manal.expensemanager.security.AuthenticatedUser;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
-    protected Key getSignInKey() {
-        String secretB64 = System.getenv("JWT_SECRET");
+    private static final long ACCESS_TTL_MS = 1000L * 60 * 60 * 24; // 24h
+
+    // Derived once; the parser is immutable and safe to share across request threads.
+    private final Key signInKey;
+    private final JwtParser parser;
+    private final VerifiedTokenCache cache;
+
+    public JwtService() {
+        this(System.getenv("JWT_SECRET"));
+    }
+
+    public JwtService(String secretB64) {
+        this(secretB64, VerifiedTokenCache.disabled());
+    }
+
+    @Autowired
+    public JwtService(@Value("${JWT_SECRET}") String secretB64, VerifiedTokenCache cache) {
+        this.cache = cache;
         byte[] keyBytes = Decoders.BASE64.decode(secretB64); // expects base64
-        return Keys.hmacShaKeyFor(keyBytes);                 // HS256-safe (>=32 bytes)
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);       // HS256-safe (>=32 bytes)
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
+    }
+
+    protected Key getSignInKey() {
+        return signInKey;
     }
 
     public String generateToken(String email) {
+        return baseToken(email).compact();
+    }
+
+    /** Embeds the user id, role and name so the filter can authenticate without a user lookup. */
+    public String generateToken(User user) {
+        return generateToken(AuthenticatedUser.of(user));
+    }
+
+    public String generateToken(AuthenticatedUser user) {
+        return baseToken(user.getEmail())
+                .claim(JwtClaims.USER_ID, user.getId())
+                .claim(JwtClaims.ROLE, user.getRole().name())
+                .claim(JwtClaims.FULL_NAME, user.getFullName())
+                .compact();
+    }
+
+    private JwtBuilder baseToken(String email) {
         return Jwts.builder()
                 .setSubject(email)
+                .setId(UUID.randomUUID().toString()) // jti, the handle used to revoke this token
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24)) // 24h
+                .setExpiration(new Date(System.currentTimeMillis() + ACCESS_TTL_MS))
                 //.setExpiration(new Date(System.currentTimeMillis()+ 1000 * 60))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
-                .compact();
+                .signWith(signInKey, SignatureAlgorithm.HS256);
+    }
+
+    /**
+     * Verifies signature and expiry in a single parse. When the verified-token cache is
+     * enabled, a token that was already verified is served from it until its {@code exp}.
+     *
+     * @throws ExpiredJwtException if the token is past its {@code exp}
+     * @throws JwtException        if the token is malformed or the signature does not match
+     */
+    public JwtClaims verify(String token) {
+        JwtClaims cached = cache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        JwtClaims claims = JwtClaims.from(parseClaims(token));
+        cache.put(token, claims);
+        return claims;
     }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).subject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> resolver) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return resolver.apply(claims);
+        return resolver.apply(parseClaims(token));
     }
 
     public boolean isTokenValid(String token, String userEmail) {
-        final String username = extractUsername(token);
-        return username.equals(userEmail) && !isTokenExpired(token);
+        JwtClaims claims = verify(token);
+        return claims.subject().equals(userEmail) && !claims.isExpired(Instant.now());
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractClaim(token, Claims::getExpiration).before(new Date());
+    private Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 }
@@ -0,0 +1,103 @@
+package com.manal.expensemanager.security.jwt;
+
+import com.manal.expensemanager.security.TokenDigests;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded cache of already-verified access tokens, keyed by a SHA-256 digest of the
+ * compact token so raw bearer tokens are never held in memory. Entries are dropped once
+ * the token reaches its {@code exp}, after which the caller falls back to a full
+ * verification (which then reports the expiry).
+ * <p>
+ * When full, the least recently used entry makes room for the new one. The map is
+ * access-ordered behind a single short lock, so every operation is O(1) however many
+ * distinct tokens are presented.
+ */
+@Component
+public class VerifiedTokenCache implements MeterBinder {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final Clock clock;
+    private final Map<String, JwtClaims> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Autowired
+    public VerifiedTokenCache(@Value("${jwt.cache.enabled:false}") boolean enabled,
+                              @Value("${jwt.cache.max-size:10000}") int maxSize) {
+        this(enabled, maxSize, Clock.systemUTC());
+    }
+
+    public VerifiedTokenCache(boolean enabled, int maxSize, Clock clock) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.clock = clock;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JwtClaims> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    public static VerifiedTokenCache disabled() {
+        return new VerifiedTokenCache(false, 0, Clock.systemUTC());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public JwtClaims get(String token) {
+        if (!enabled) return null;
+        String key = TokenDigests.sha256(token);
+        JwtClaims claims = entries.get(key);
+        if (claims == null) {
+            misses.increment();
+            return null;
+        }
+        if (claims.isExpired(clock.instant())) {
+            entries.remove(key, claims);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return claims;
+    }
+
+    public void put(String token, JwtClaims claims) {
+        if (!enabled || claims.expiresAt() == null) return;
+        entries.put(TokenDigests.sha256(token), claims);
+    }
+
+    public long hitCount() { return hits.sum(); }
+    public long missCount() { return misses.sum(); }
+    public int size() { return entries.size(); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Access tokens served from the verified-token cache")
+                .register(registry);
+        FunctionCounter.builder("jwt.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Access tokens that required a full signature check")
+                .register(registry);
+        Gauge.builder("jwt.cache.size", entries, Map::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,117 @@
+package com.manal.expensemanager.security.ratelimit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets keyed by an arbitrary string (an IP, an email). Each bucket is a single
+ * {@link AtomicLong} updated by CAS, so callers never block each other.
+ * <p>
+ * The key map is bounded. {@link #evictIdle()}, run on a schedule, drops buckets that have
+ * sat idle long enough to be full again, since a fresh bucket behaves identically. While the
+ * map is full, new keys never displace existing ones, so spraying keys can neither reset a
+ * tracked key's bucket nor cost more than O(1) per request. Instead they are spread by hash
+ * over a fixed set of overflow buckets, or, with none, not limited at all: the choice for a
+ * limiter backed by another one, where a shared bucket would let a sprayer lock out every
+ * key not yet tracked.
+ */
+public class TokenBucketLimiter {
+
+    // State packed into one long: high 40 bits = last refill (ms since start), low 24 = millitokens
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI = 1000;
+
+    private final long capacityMilli;
+    private final double refillMilliPerMs;
+    private final long idleMs;
+    private final int maxKeys;
+    private final Clock clock;
+    private final long epochMs;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong[] overflow;
+
+    public TokenBucketLimiter(int capacity, Duration refillPeriod, int maxKeys, Clock clock) {
+        this(capacity, refillPeriod, maxKeys, 1, clock);
+    }
+
+    /**
+     * @param overflowBuckets buckets shared by keys that arrive while the map is full;
+     *                        0 lets those keys through unlimited
+     */
+    public TokenBucketLimiter(int capacity, Duration refillPeriod, int maxKeys, int overflowBuckets, Clock clock) {
+        if (capacity < 1 || capacity * MILLI > TOKEN_MASK) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + TOKEN_MASK / MILLI);
+        }
+        this.capacityMilli = capacity * MILLI;
+        // refillPeriod is the time to refill one token
+        this.refillMilliPerMs = (double) MILLI / Math.max(1, refillPeriod.toMillis());
+        this.idleMs = (long) Math.ceil(capacityMilli / refillMilliPerMs);
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        this.epochMs = clock.millis();
+        this.overflow = new AtomicLong[overflowBuckets];
+        for (int i = 0; i < overflowBuckets; i++) {
+            overflow[i] = new AtomicLong(pack(0, capacityMilli));
+        }
+    }
+
+    /**
+     * Takes one token for {@code key}.
+     *
+     * @return 0 if allowed, otherwise the number of milliseconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() < maxKeys) {
+                bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(pack(now(), capacityMilli)));
+            } else if (overflow.length == 0) {
+                return 0;
+            } else {
+                bucket = overflow[Math.floorMod(key.hashCode(), overflow.length)];
+            }
+        }
+        while (true) {
+            long prev = bucket.get();
+            long now = Math.max(now(), stamp(prev));
+            long tokens = Math.min(capacityMilli,
+                    tokens(prev) + (long) ((now - stamp(prev)) * refillMilliPerMs));
+            if (tokens < MILLI) {
+                return (long) Math.ceil((MILLI - tokens) / refillMilliPerMs);
+            }
+            if (bucket.compareAndSet(prev, pack(now, tokens - MILLI))) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /** Drops buckets that have refilled completely; they carry no state worth keeping. */
+    public void evictIdle() {
+        long cutoff = now() - idleMs;
+        buckets.values().removeIf(b -> stamp(b.get()) <= cutoff);
+    }
+
+    private long now() {
+        return clock.millis() - epochMs;
+    }
+
+    private static long pack(long stamp, long tokens) {
+        return (stamp << TOKEN_BITS) | tokens;
+    }
+
+    private static long stamp(long state) {
+        return state >>> TOKEN_BITS;
+    }
+
+    private static long tokens(long state) {
+        return state & TOKEN_MASK;
+    }
+}
@@ -0,0 +1,158 @@
+package com.manal.expensemanager.security.revocation;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revoked access tokens, identified by their {@code jti}.
+ * <p>
+ * The {@code revoked_access_token} table is the exact set and the source of truth shared by
+ * every instance. Each instance mirrors it into an in-memory Bloom filter, so the common case
+ * (a token that was never revoked) is answered without touching the database; only a possible
+ * hit is confirmed with an indexed lookup. Instances pick up each other's revocations by
+ * polling for recently revoked rows, and periodically rebuild the filter from the unexpired
+ * rows only, which is how entries for expired tokens age out.
+ */
+@Slf4j
+@Component
+public class AccessTokenDenylist implements MeterBinder {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 10_000;
+    // Poll window overlap, so rows committed late by a slow transaction are not skipped
+    private static final Duration POLL_OVERLAP = Duration.ofSeconds(30);
+
+    private final RevokedAccessTokenRepository repo;
+    private final boolean enabled;
+    private final Clock clock;
+
+    private volatile BloomFilter filter = BloomFilter.create(MIN_CAPACITY, FALSE_POSITIVE_RATE);
+    private volatile Instant lastPoll;
+    private final AtomicInteger capacity = new AtomicInteger(MIN_CAPACITY);
+    private final AtomicInteger inserted = new AtomicInteger();
+
+    private final LongAdder clear = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder revokedHits = new LongAdder();
+
+    @Autowired
+    public AccessTokenDenylist(RevokedAccessTokenRepository repo,
+                               @Value("${jwt.denylist.enabled:true}") boolean enabled) {
+        this(repo, enabled, Clock.systemUTC());
+    }
+
+    public AccessTokenDenylist(RevokedAccessTokenRepository repo, boolean enabled, Clock clock) {
+        this.repo = repo;
+        this.enabled = enabled;
+        this.clock = clock;
+        this.lastPoll = clock.instant();
+    }
+
+    /** Records the revocation; the row is kept until {@code expiresAt}, when the token dies anyway. */
+    public void revoke(String jti, Instant expiresAt) {
+        if (!enabled || jti == null || expiresAt == null || !expiresAt.isAfter(clock.instant())) {
+            return;
+        }
+        repo.insertIfAbsent(jti, expiresAt, clock.instant());
+        add(jti);
+    }
+
+    public boolean isRevoked(String jti) {
+        if (!enabled || jti == null) {
+            return false;
+        }
+        if (!filter.mightContain(jti)) {
+            clear.increment();
+            return false;
+        }
+        if (repo.existsByJti(jti)) {
+            revokedHits.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /** Pulls revocations made on other instances since the previous poll. */
+    @Scheduled(fixedDelayString = "${jwt.denylist.poll-interval:PT5S}")
+    public void poll() {
+        if (!enabled) return;
+        Instant now = clock.instant();
+        List<String> recent = repo.findJtisRevokedSince(lastPoll.minus(POLL_OVERLAP), now);
+        recent.forEach(this::add);
+        lastPoll = now;
+    }
+
+    /** Deletes rows for expired tokens and rebuilds the filter from what is left. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${jwt.denylist.prune-interval:PT10M}",
+            fixedDelayString = "${jwt.denylist.prune-interval:PT10M}")
+    public synchronized void rebuild() {
+        if (!enabled) return;
+        Instant now = clock.instant();
+        int pruned = repo.deleteExpired(now);
+        List<String> live = repo.findUnexpiredJtis(now);
+
+        int size = Math.max(MIN_CAPACITY, live.size() * 2);
+        BloomFilter fresh = BloomFilter.create(size, FALSE_POSITIVE_RATE);
+        live.forEach(fresh::put);
+        filter = fresh;
+        capacity.set(size);
+        inserted.set(live.size());
+        // Anything revoked while the snapshot was taken is re-added by the next poll
+        lastPoll = now;
+        if (pruned > 0) {
+            log.info("Pruned {} expired access-token revocations, {} remain", pruned, live.size());
+        }
+    }
+
+    public int size() {
+        return inserted.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.denylist.checks", clear, LongAdder::sum)
+                .tag("result", "clear")
+                .description("Tokens cleared by the Bloom filter alone")
+                .register(registry);
+        FunctionCounter.builder("jwt.denylist.checks", falsePositives, LongAdder::sum)
+                .tag("result", "false_positive")
+                .description("Possible hits that the database lookup cleared")
+                .register(registry);
+        FunctionCounter.builder("jwt.denylist.checks", revokedHits, LongAdder::sum)
+                .tag("result", "revoked")
+                .description("Requests refused because their token was revoked")
+                .register(registry);
+        Gauge.builder("jwt.denylist.size", inserted, AtomicInteger::get)
+                .register(registry);
+    }
+
+    private void add(String jti) {
+        BloomFilter current = filter;
+        if (current.mightContain(jti)) {
+            return; // already present (polls overlap), or indistinguishable from it
+        }
+        current.put(jti);
+        // Past the sized capacity the false-positive rate climbs; rebuild early rather than wait
+        if (inserted.incrementAndGet() > capacity.get()) {
+            rebuild();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.manal.expensemanager.security.revocation;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity @Data @Builder @NoArgsConstructor @AllArgsConstructor
+@Table(indexes = {
+        @Index(name = "idx_revoked_access_token_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_revoked_access_token_expires_at", columnList = "expires_at")
+})
+public class RevokedAccessToken {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String jti;
+
+    // Row is only needed until the token would have expired anyway
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    @Column(nullable = false)
+    private Instant revokedAt;
+}
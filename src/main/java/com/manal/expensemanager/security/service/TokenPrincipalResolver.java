@@ -0,0 +1,90 @@
+package com.manal.expensemanager.security.service;
+
+import com.manal.expensemanager.model.Role;
+import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
+import com.manal.expensemanager.security.jwt.JwtClaims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stateless mode for {@code JwtAuthenticationFilter}: builds the principal from the
+ * verified token instead of loading the user on every request. Whether the account
+ * still exists with the same role is re-checked at most once per {@code status-ttl}
+ * per user, so deleted or downgraded users lose access within that window.
+ * <p>
+ * At most 50,000 statuses are kept; past that the least recently
+ * used one is dropped, and that user is simply looked up again on their next request.
+ */
+@Component
+public class TokenPrincipalResolver {
+
+    private static final int MAX_STATUS_ENTRIES = 50_000;
+
+    private final UserRepository userRepository;
+    private final boolean enabled;
+    private final Duration statusTtl;
+    private final Clock clock;
+    private final Map<Long, Status> statuses;
+
+    @Autowired
+    public TokenPrincipalResolver(UserRepository userRepository,
+                                  @Value("${jwt.stateless.enabled:false}") boolean enabled,
+                                  @Value("${jwt.stateless.status-ttl:30s}") Duration statusTtl) {
+        this(userRepository, enabled, statusTtl, Clock.systemUTC());
+    }
+
+    public TokenPrincipalResolver(UserRepository userRepository, boolean enabled, Duration statusTtl, Clock clock) {
+        this(userRepository, enabled, statusTtl, clock, MAX_STATUS_ENTRIES);
+    }
+
+    public TokenPrincipalResolver(UserRepository userRepository, boolean enabled, Duration statusTtl, Clock clock,
+                                  int maxStatusEntries) {
+        this.userRepository = userRepository;
+        this.enabled = enabled;
+        this.statusTtl = statusTtl;
+        this.clock = clock;
+        this.statuses = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Status> eldest) {
+                return size() > maxStatusEntries;
+            }
+        });
+    }
+
+    public boolean supports(JwtClaims claims) {
+        return enabled && claims.hasIdentity();
+    }
+
+    /**
+     * @return the principal, or {@code null} if the user was deleted or its role changed
+     */
+    public AuthenticatedUser resolve(JwtClaims claims) {
+        Role role = Role.valueOf(claims.role());
+        if (!isActive(claims.userId(), role)) {
+            return null;
+        }
+        return new AuthenticatedUser(claims.userId(), claims.subject(), claims.fullName(), role, null);
+    }
+
+    private boolean isActive(Long userId, Role role) {
+        Instant now = clock.instant();
+        Status status = statuses.get(userId);
+        if (status == null || status.checkedAt().plus(statusTtl).isBefore(now)) {
+            status = new Status(userRepository.findRoleById(userId), now);
+            statuses.put(userId, status);
+        }
+        return status.role().map(role::equals).orElse(false);
+    }
+
+    private record Status(Optional<Role> role, Instant checkedAt) {}
+}
@@ -2,40 +2,79 @@ package com.manal.expensemanager.service;
 
 import com.manal.expensemanager.dto.AnnualStatDTO;
 import com.manal.expensemanager.dto.CategoryStatDTO;
+import com.manal.expensemanager.dto.CursorPage;
+import com.manal.expensemanager.dto.ExpenseChangesDTO;
+import com.manal.expensemanager.dto.DashboardDTO;
+import com.manal.expensemanager.dto.DateRange;
+import com.manal.expensemanager.dto.ExpenseFilter;
 import com.manal.expensemanager.dto.ExpenseRequestDTO;
+import com.manal.expensemanager.dto.ExpenseSearchHit;
+import com.manal.expensemanager.dto.ExpenseView;
 import com.manal.expensemanager.dto.MonthlyStatDTO;
-import com.manal.expensemanager.model.Expense;
-import org.springframework.data.domain.Page;
+import com.manal.expensemanager.dto.RetagRequestDTO;
+import com.manal.expensemanager.dto.RetagResult;
+import com.manal.expensemanager.dto.TagStatDTO;
+import com.manal.expensemanager.dto.TrendsDTO;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ExpenseService {
-    Expense createExpense(ExpenseRequestDTO dto);
-    List<Expense> getMyExpenses();
+    ExpenseView createExpense(ExpenseRequestDTO dto);
+    void deleteMyExpense(Long id);
+    // Adds/removes tags on many of the current user's expenses in one statement
+    RetagResult retagMyExpenses(RetagRequestDTO dto);
+    CursorPage<ExpenseView> getMyExpenses(String cursor, int size);
+    // Filtered and ordered by date or amount; cursor-paged like the plain listing
+    CursorPage<ExpenseView> searchMyExpenses(ExpenseFilter filter, String sort, String cursor, int size);
+    // Delta sync: what was created, changed or deleted since a position from an earlier call
+    ExpenseChangesDTO getMyChanges(String since, int size);
+    // Full-text over title and description: best match first, with highlights
+    CursorPage<ExpenseSearchHit> textSearchMyExpenses(String text, String cursor, int size);
 
-    Double getTotalAmount();
+    // Stats take an optional inclusive date window; DateRange.ALL is the whole history
+    Double getTotalAmount(DateRange range);
 
-    List<MonthlyStatDTO> getMonthlyStats(); // Keep for CSV
-    Page<MonthlyStatDTO> getMonthlyStats(Pageable pageable); // New for UI
+    List<MonthlyStatDTO> getMonthlyStats(DateRange range); // Keep for CSV
+    // count=false skips the total and returns a Slice that only knows whether a next page exists
+    Slice<MonthlyStatDTO> getMonthlyStats(DateRange range, Pageable pageable, boolean count); // New for UI
 
-    List<CategoryStatDTO> getTotalByCategory();
-    Page<CategoryStatDTO> getTotalByCategory(Pageable pageable);
+    List<CategoryStatDTO> getTotalByCategory(DateRange range);
+    Slice<CategoryStatDTO> getTotalByCategory(DateRange range, Pageable pageable, boolean count);
 
-    List<AnnualStatDTO> getAnnualStats();
-    Page<AnnualStatDTO> getAnnualStats(Pageable pageable);
+    // An expense counts towards each of its tags
+    Slice<TagStatDTO> getTotalByTag(DateRange range, Pageable pageable, boolean count);
 
-    List<Expense> getExpensesByUserId(Long userId);
+    List<AnnualStatDTO> getAnnualStats(DateRange range);
+    Slice<AnnualStatDTO> getAnnualStats(DateRange range, Pageable pageable, boolean count);
 
-    Double getTotalAmount(Long userId);
+    // Total, monthly, by-category and annual sums in one query
+    DashboardDTO getDashboard(DateRange range);
+    DashboardDTO getDashboard(Long userId, DateRange range);
 
-    List<MonthlyStatDTO> getMonthlyStats(Long userId);
-    Page<MonthlyStatDTO> getMonthlyStats(Long userId, Pageable pageable);
+    // Month-over-month / year-over-year deltas, running total and category shares
+    TrendsDTO getTrends(DateRange range);
+    TrendsDTO getTrends(Long userId, DateRange range);
 
-    List<CategoryStatDTO> getTotalByCategory(Long userId);
-    Page<CategoryStatDTO> getTotalByCategory(Long userId, Pageable pageable);
+    CursorPage<ExpenseView> getExpensesByUserId(Long userId, String cursor, int size);
 
-    List<AnnualStatDTO> getAnnualStats(Long userId);
-    Page<AnnualStatDTO> getAnnualStats(Long userId, Pageable pageable);
+    // Full history, one row at a time in constant memory (for streaming responses)
+    void forEachOfMyExpenses(Consumer<ExpenseView> action);
+    void forEachExpense(Long userId, Consumer<ExpenseView> action);
+
+    Double getTotalAmount(Long userId, DateRange range);
+
+    List<MonthlyStatDTO> getMonthlyStats(Long userId, DateRange range);
+    Slice<MonthlyStatDTO> getMonthlyStats(Long userId, DateRange range, Pageable pageable, boolean count);
+
+    List<CategoryStatDTO> getTotalByCategory(Long userId, DateRange range);
+    Slice<CategoryStatDTO> getTotalByCategory(Long userId, DateRange range, Pageable pageable, boolean count);
+
+    Slice<TagStatDTO> getTotalByTag(Long userId, DateRange range, Pageable pageable, boolean count);
+
+    List<AnnualStatDTO> getAnnualStats(Long userId, DateRange range);
+    Slice<AnnualStatDTO> getAnnualStats(Long userId, DateRange range, Pageable pageable, boolean count);
 
 }
@@ -1,5 +1,6 @@
 package com.manal.expensemanager.service;
 
+import com.manal.expensemanager.dto.BatchUserResponse;
 import com.manal.expensemanager.dto.UserRequestDTO;
 import com.manal.expensemanager.model.User;
 
@@ -7,5 +8,6 @@ import java.util.List;
 
 public interface UserService {
     User createUser(UserRequestDTO dto);
+    BatchUserResponse createUsers(List<UserRequestDTO> dtos);
     List<User> getAllUsers();
 }
@@ -0,0 +1,37 @@
+package com.manal.expensemanager.service.impl;
+
+import com.manal.expensemanager.dto.ExpenseView;
+import com.manal.expensemanager.repository.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position in the {@code (date DESC, id DESC)} ordering of a user's expenses: the key of
+ * the last row served. Undated rows sort after every dated one. Encoded as an opaque
+ * base64url token so clients do not build or depend on it.
+ */
+record ExpenseCursor(LocalDate date, long id) {
+
+    static ExpenseCursor after(ExpenseView last) {
+        return new ExpenseCursor(last.date(), last.id());
+    }
+
+    String encode() {
+        String raw = (date != null ? date.toString() : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static ExpenseCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            String date = raw.substring(0, sep);
+            return new ExpenseCursor(date.isEmpty() ? null : LocalDate.parse(date),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
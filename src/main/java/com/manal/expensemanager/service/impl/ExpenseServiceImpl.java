@@ -2,25 +2,48 @@ package com.manal.expensemanager.service.impl;
 
 import com.manal.expensemanager.dto.AnnualStatDTO;
 import com.manal.expensemanager.dto.CategoryStatDTO;
+import com.manal.expensemanager.dto.CursorPage;
+import com.manal.expensemanager.dto.ExpenseChangeDTO;
+import com.manal.expensemanager.dto.ExpenseChangesDTO;
+import com.manal.expensemanager.dto.DashboardDTO;
+import com.manal.expensemanager.dto.DateRange;
+import com.manal.expensemanager.dto.ExpenseFilter;
 import com.manal.expensemanager.dto.ExpenseRequestDTO;
+import com.manal.expensemanager.dto.ExpenseSearchHit;
+import com.manal.expensemanager.dto.ExpenseView;
 import com.manal.expensemanager.dto.MonthlyStatDTO;
+import com.manal.expensemanager.dto.RetagRequestDTO;
+import com.manal.expensemanager.dto.RetagResult;
+import com.manal.expensemanager.dto.TagStatDTO;
+import com.manal.expensemanager.dto.TrendsDTO;
 import com.manal.expensemanager.model.Category;
 import com.manal.expensemanager.model.Expense;
 import com.manal.expensemanager.model.User;
 import com.manal.expensemanager.repository.CategoryRepository;
+import com.manal.expensemanager.repository.ExpenseChangeRepository;
+import com.manal.expensemanager.repository.ExpenseNotFoundException;
 import com.manal.expensemanager.repository.ExpenseRepository;
+import com.manal.expensemanager.repository.ExpenseStatsRepository;
+import com.manal.expensemanager.repository.ExpenseTagRepository;
+import com.manal.expensemanager.repository.ExpenseTextSearchRepository;
+import com.manal.expensemanager.repository.InvalidDateRangeException;
 import com.manal.expensemanager.repository.UserRepository;
 import com.manal.expensemanager.security.CurrentUser;
 import com.manal.expensemanager.service.ExpenseService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static com.manal.expensemanager.repository.ExpenseSpecifications.*;
 
 @Service
 @RequiredArgsConstructor
@@ -29,26 +52,50 @@ public class ExpenseServiceImpl implements ExpenseService {
     private final ExpenseRepository expenseRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
+    private final ExpenseStatsRepository statsRepository;
+    private final ExpenseTextSearchRepository textSearchRepository;
+    private final ExpenseTagRepository tagRepository;
+    private final ExpenseChangeRepository changeRepository;
     private final CurrentUser currentUser;
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_CHANGES = 1000;
+
     /* ----------------- Helpers ----------------- */
 
-    private static <T> Page<T> toPage(List<T> all, Pageable pageable) {
-        int start = (int) pageable.getOffset();
-        if (start >= all.size()) {
-            return new PageImpl<>(Collections.emptyList(), pageable, all.size());
+    // Fetches one row past the page to learn whether another page exists, without a count
+    private CursorPage<ExpenseView> pageOf(Long userId, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int limit = pageSize + 1;
+        ExpenseCursor after = cursor != null ? ExpenseCursor.decode(cursor) : null;
+
+        List<ExpenseView> rows;
+        if (after == null || after.date() != null) {
+            rows = new ArrayList<>(after == null
+                    ? expenseRepository.findFirstPage(userId, PageRequest.ofSize(limit))
+                    : expenseRepository.findPageAfter(userId, after.date(), after.id(), PageRequest.ofSize(limit)));
+            if (rows.size() < limit) {
+                // dated rows exhausted: continue into the undated tail
+                rows.addAll(expenseRepository.findUndatedPageAfter(userId, Long.MAX_VALUE,
+                        PageRequest.ofSize(limit - rows.size())));
+            }
+        } else {
+            rows = expenseRepository.findUndatedPageAfter(userId, after.id(), PageRequest.ofSize(limit));
+        }
+
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
         }
-        int end = Math.min(start + pageable.getPageSize(), all.size());
-        List<T> page = all.subList(start, end);
-        return new PageImpl<>(page, pageable, all.size());
+        List<ExpenseView> page = rows.subList(0, pageSize);
+        return new CursorPage<>(page, ExpenseCursor.after(page.get(pageSize - 1)).encode());
     }
 
     /* ----------------- Commands ----------------- */
 
     @Override
     @Transactional
-    public Expense createExpense(ExpenseRequestDTO dto) {
-        User user = currentUser.get();
+    public ExpenseView createExpense(ExpenseRequestDTO dto) {
+        User user = currentUser.reference();
         Category category = categoryRepository.findById(dto.getCategoryId())
                 .orElseThrow(() -> new IllegalArgumentException("Category not found"));
 
@@ -57,116 +104,266 @@ public class ExpenseServiceImpl implements ExpenseService {
                 .description(dto.getDescription())
                 .amount(dto.getAmount())
                 .date(dto.getDate())
+                .tags(ExpenseTags.normalize(dto.getTags()))
                 .user(user)
                 .category(category)
                 .build();
 
-        return expenseRepository.save(expense);
+        // Mapped inside the transaction: nothing lazy is left for the web layer to touch
+        return ExpenseView.of(expenseRepository.save(expense));
+    }
+
+    @Override
+    @Transactional
+    public void deleteMyExpense(Long id) {
+        if (expenseRepository.deleteOwned(id, currentUser.id()) == 0) {
+            throw new ExpenseNotFoundException(id);
+        }
+    }
+
+    @Override
+    @Transactional
+    public RetagResult retagMyExpenses(RetagRequestDTO dto) {
+        return tagRepository.retag(currentUser.id(), dto.getExpenseIds(),
+                ExpenseTags.normalize(dto.getAdd()), ExpenseTags.normalize(dto.getRemove()));
     }
 
     /* ----------------- Queries: current user ----------------- */
 
     @Override
     @Transactional(readOnly = true)
-    public List<Expense> getMyExpenses() {
-        return expenseRepository.findByUser(currentUser.get());
+    public CursorPage<ExpenseView> getMyExpenses(String cursor, int size) {
+        return pageOf(currentUser.id(), cursor, size);
+    }
+
+    /**
+     * Filters are composed as Specifications, each a plain comparison, so Postgres can pick the
+     * index that matches the combination. Rows are fetched with their category in one query and
+     * mapped before the transaction ends.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ExpenseView> searchMyExpenses(ExpenseFilter filter, String sort, String cursor, int size) {
+        if (filter.from() != null && filter.to() != null && filter.from().isAfter(filter.to())) {
+            throw new InvalidDateRangeException("'from' (" + filter.from() + ") is after 'to' (" + filter.to() + ")");
+        }
+        SearchOrder order = SearchOrder.parse(sort);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        Specification<Expense> spec = Specification.where(ownedBy(currentUser.id()))
+                .and(dateFrom(filter.from()))
+                .and(dateTo(filter.to()))
+                .and(amountAtLeast(filter.minAmount()))
+                .and(amountAtMost(filter.maxAmount()))
+                .and(inCategories(filter.categoryIds()))
+                .and(anyTags(ExpenseTags.normalize(filter.anyTags())))
+                .and(allTags(ExpenseTags.normalize(filter.allTags())));
+        if (cursor != null) {
+            spec = spec.and(SearchCursor.decode(cursor, order).remaining());
+        }
+
+        List<ExpenseView> rows = expenseRepository.findBy(spec, q -> q
+                        .sortBy(order.sort())
+                        .limit(pageSize + 1)
+                        .project("category")
+                        .all())
+                .stream().map(ExpenseView::of).toList();
+
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<ExpenseView> page = rows.subList(0, pageSize);
+        return new CursorPage<>(page, SearchCursor.after(order, page.get(pageSize - 1)).encode());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ExpenseSearchHit> textSearchMyExpenses(String text, String cursor, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        TextSearchCursor after = cursor != null ? TextSearchCursor.decode(cursor) : null;
+
+        List<ExpenseSearchHit> rows = textSearchRepository.search(currentUser.id(), text,
+                after != null ? after.rank() : null, after != null ? after.id() : null, pageSize + 1);
+
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<ExpenseSearchHit> page = rows.subList(0, pageSize);
+        return new CursorPage<>(page, TextSearchCursor.after(page.get(pageSize - 1)).encode());
+    }
+
+    /**
+     * Reads up to {@code size} changes after {@code since}, capped at the settled version so no
+     * late commit can land behind the position handed back. One row past the page tells whether
+     * to come back immediately.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public ExpenseChangesDTO getMyChanges(String since, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_CHANGES));
+        SyncPosition from = SyncPosition.parse(since);
+        long settled = changeRepository.settledVersion();
+
+        List<ExpenseChangeDTO> rows = changeRepository.changesAfter(currentUser.id(), from.version(), from.id(),
+                settled, limit + 1);
+
+        if (rows.size() > limit) {
+            List<ExpenseChangeDTO> page = rows.subList(0, limit);
+            ExpenseChangeDTO last = page.get(limit - 1);
+            return new ExpenseChangesDTO(page, new SyncPosition(last.version(), last.id()).format(), true);
+        }
+        // caught up: everything below the settled version has now been seen
+        SyncPosition next = from.version() >= settled ? from : new SyncPosition(settled, 0);
+        return new ExpenseChangesDTO(rows, next.format(), false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachOfMyExpenses(Consumer<ExpenseView> action) {
+        forEachExpense(currentUser.id(), action);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Double getTotalAmount(DateRange range) {
+        return getTotalAmount(currentUser.id(), range);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CategoryStatDTO> getTotalByCategory(DateRange range) {
+        return getTotalByCategory(currentUser.id(), range);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<MonthlyStatDTO> getMonthlyStats(DateRange range) {
+        return getMonthlyStats(currentUser.id(), range);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Double getTotalAmount() {
-        return getTotalAmount(currentUser.id());
+    public List<AnnualStatDTO> getAnnualStats(DateRange range) {
+        return getAnnualStats(currentUser.id(), range);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<CategoryStatDTO> getTotalByCategory() {
-        return getTotalByCategory(currentUser.id());
+    public Slice<CategoryStatDTO> getTotalByCategory(DateRange range, Pageable pageable, boolean count) {
+        return getTotalByCategory(currentUser.id(), range, pageable, count);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<MonthlyStatDTO> getMonthlyStats() {
-        return getMonthlyStats(currentUser.id());
+    public Slice<TagStatDTO> getTotalByTag(DateRange range, Pageable pageable, boolean count) {
+        return getTotalByTag(currentUser.id(), range, pageable, count);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<AnnualStatDTO> getAnnualStats() {
-        return getAnnualStats(currentUser.id());
+    public Slice<MonthlyStatDTO> getMonthlyStats(DateRange range, Pageable pageable, boolean count) {
+        return getMonthlyStats(currentUser.id(), range, pageable, count);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<CategoryStatDTO> getTotalByCategory(Pageable pageable) {
-        return getTotalByCategory(currentUser.id(), pageable);
+    public Slice<AnnualStatDTO> getAnnualStats(DateRange range, Pageable pageable, boolean count) {
+        return getAnnualStats(currentUser.id(), range, pageable, count);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<MonthlyStatDTO> getMonthlyStats(Pageable pageable) {
-        return getMonthlyStats(currentUser.id(), pageable);
+    public DashboardDTO getDashboard(DateRange range) {
+        return getDashboard(currentUser.id(), range);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<AnnualStatDTO> getAnnualStats(Pageable pageable) {
-        return getAnnualStats(currentUser.id(), pageable);
+    public TrendsDTO getTrends(DateRange range) {
+        return getTrends(currentUser.id(), range);
     }
 
     /* ----------------- Queries: admin by userId ----------------- */
 
     @Override
     @Transactional(readOnly = true)
-    public List<Expense> getExpensesByUserId(Long userId) {
-        var user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        return expenseRepository.findByUser(user);
+    public CursorPage<ExpenseView> getExpensesByUserId(Long userId, String cursor, int size) {
+        if (cursor == null && !userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+        return pageOf(userId, cursor, size);
+    }
+
+    /**
+     * Rows are projections, not managed entities, so nothing accumulates in the persistence
+     * context. An exception from {@code action} (e.g. the client went away) stops the stream
+     * and releases the cursor.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachExpense(Long userId, Consumer<ExpenseView> action) {
+        try (Stream<ExpenseView> rows = expenseRepository.streamByUserId(userId)) {
+            rows.forEach(action);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DashboardDTO getDashboard(Long userId, DateRange range) {
+        return statsRepository.dashboard(userId, range);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TrendsDTO getTrends(Long userId, DateRange range) {
+        return statsRepository.trends(userId, range);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Double getTotalAmount(Long userId, DateRange range) {
+        return statsRepository.total(userId, range);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Double getTotalAmount(Long userId) {
-        return expenseRepository.getTotalAmountByUserId(userId);
+    public List<CategoryStatDTO> getTotalByCategory(Long userId, DateRange range) {
+        return statsRepository.byCategory(userId, range, Pageable.unpaged(), true).getContent();
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<CategoryStatDTO> getTotalByCategory(Long userId) {
-        return expenseRepository.getTotalByCategory(userId);
+    public Slice<CategoryStatDTO> getTotalByCategory(Long userId, DateRange range, Pageable pageable, boolean count) {
+        return statsRepository.byCategory(userId, range, pageable, count);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<CategoryStatDTO> getTotalByCategory(Long userId, Pageable pageable) {
-        return toPage(getTotalByCategory(userId), pageable);
+    public Slice<TagStatDTO> getTotalByTag(Long userId, DateRange range, Pageable pageable, boolean count) {
+        return statsRepository.byTag(userId, range, pageable, count);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<MonthlyStatDTO> getMonthlyStats(Long userId) {
-        return expenseRepository.getMonthlyStats(userId).stream()
-                .map(r -> new MonthlyStatDTO((String) r[0], ((Number) r[1]).doubleValue()))
-                .toList();
+    public List<MonthlyStatDTO> getMonthlyStats(Long userId, DateRange range) {
+        return statsRepository.monthly(userId, range, Pageable.unpaged(), true).getContent();
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<MonthlyStatDTO> getMonthlyStats(Long userId, Pageable pageable) {
-        return toPage(getMonthlyStats(userId), pageable);
+    public Slice<MonthlyStatDTO> getMonthlyStats(Long userId, DateRange range, Pageable pageable, boolean count) {
+        return statsRepository.monthly(userId, range, pageable, count);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<AnnualStatDTO> getAnnualStats(Long userId) {
-        return expenseRepository.getAnnualStats(userId).stream()
-                .map(r -> new AnnualStatDTO(String.valueOf(r[0]), ((Number) r[1]).doubleValue()))
-                .toList();
+    public List<AnnualStatDTO> getAnnualStats(Long userId, DateRange range) {
+        return statsRepository.annual(userId, range, Pageable.unpaged(), true).getContent();
     }
 
     @Override
     @Transactional(readOnly = true)
-    public Page<AnnualStatDTO> getAnnualStats(Long userId, Pageable pageable) {
-        return toPage(getAnnualStats(userId), pageable);
+    public Slice<AnnualStatDTO> getAnnualStats(Long userId, DateRange range, Pageable pageable, boolean count) {
+        return statsRepository.annual(userId, range, pageable, count);
     }
 }
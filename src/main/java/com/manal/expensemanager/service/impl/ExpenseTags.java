@@ -0,0 +1,24 @@
+package com.manal.expensemanager.service.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/** Tags are stored and compared lowercase, without duplicates, in sorted order. */
+final class ExpenseTags {
+
+    private ExpenseTags() {
+    }
+
+    static List<String> normalize(Collection<String> tags) {
+        if (tags == null) {
+            return List.of();
+        }
+        return tags.stream()
+                .map(t -> t.trim().toLowerCase(Locale.ROOT))
+                .filter(t -> !t.isEmpty())
+                .distinct()
+                .sorted()
+                .toList();
+    }
+}
@@ -0,0 +1,44 @@
+package com.manal.expensemanager.service.impl;
+
+import com.manal.expensemanager.dto.ExpenseView;
+import com.manal.expensemanager.model.Expense;
+import com.manal.expensemanager.repository.InvalidCursorException;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a search ordering: the ordering itself plus the last row's sort key and id, as an
+ * opaque base64url token. A cursor is only valid with the ordering it was issued for.
+ */
+record SearchCursor(SearchOrder order, String key, long id) {
+
+    static SearchCursor after(SearchOrder order, ExpenseView last) {
+        return new SearchCursor(order, order.keyOf(last), last.id());
+    }
+
+    /** The rows that come after this position. */
+    Specification<Expense> remaining() {
+        return order.after(order.parseKey(key), id);
+    }
+
+    String encode() {
+        String raw = order.name() + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SearchCursor decode(String token, SearchOrder expected) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", -1);
+            SearchOrder order = SearchOrder.valueOf(parts[0]);
+            if (order != expected || parts.length != 3) {
+                throw new IllegalArgumentException();
+            }
+            order.parseKey(parts[1]);
+            return new SearchCursor(order, parts[1], Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.manal.expensemanager.service.impl;
+
+import com.manal.expensemanager.dto.ExpenseView;
+import com.manal.expensemanager.model.Expense;
+import com.manal.expensemanager.repository.ExpenseSpecifications;
+import com.manal.expensemanager.repository.InvalidSortException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * The orderings expense search can page through with a cursor: by date or by amount, either
+ * direction, with id as the tie-breaker. {@code sort=amount,desc} with a small {@code size} is
+ * "top N largest".
+ */
+enum SearchOrder {
+    DATE_DESC("date", true),
+    DATE_ASC("date", false),
+    AMOUNT_DESC("amount", true),
+    AMOUNT_ASC("amount", false);
+
+    private final String key;
+    private final boolean descending;
+
+    SearchOrder(String key, boolean descending) {
+        this.key = key;
+        this.descending = descending;
+    }
+
+    /** Parses {@code date|amount[,asc|desc]}; the direction defaults to descending. */
+    static SearchOrder parse(String sort) {
+        if (sort == null || sort.isBlank()) {
+            return DATE_DESC;
+        }
+        String[] parts = sort.trim().toLowerCase(Locale.ROOT).split(",", 2);
+        String direction = parts.length > 1 ? parts[1].trim() : "desc";
+        if (!direction.equals("asc") && !direction.equals("desc")) {
+            throw new InvalidSortException("Invalid sort direction '" + parts[1] + "'; use asc or desc");
+        }
+        for (SearchOrder order : values()) {
+            if (order.key.equals(parts[0].trim()) && order.descending == direction.equals("desc")) {
+                return order;
+            }
+        }
+        throw new InvalidSortException("Cannot sort by '" + parts[0] + "'; allowed: amount, date");
+    }
+
+    Sort sort() {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, key).and(Sort.by(direction, "id"));
+    }
+
+    /** The sort key of {@code row} as it goes into a cursor; empty for an undated row. */
+    String keyOf(ExpenseView row) {
+        Object value = key.equals("date") ? row.date() : row.amount();
+        return value != null ? value.toString() : "";
+    }
+
+    Comparable<?> parseKey(String raw) {
+        if (raw.isEmpty()) return null;
+        return key.equals("date") ? LocalDate.parse(raw) : Double.valueOf(raw);
+    }
+
+    Specification<Expense> after(Comparable<?> last, long lastId) {
+        return key.equals("date")
+                ? ExpenseSpecifications.after(key, (LocalDate) last, lastId, descending)
+                : ExpenseSpecifications.after(key, (Double) last, lastId, descending);
+    }
+}
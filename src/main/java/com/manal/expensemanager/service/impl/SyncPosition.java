@@ -0,0 +1,37 @@
+package com.manal.expensemanager.service.impl;
+
+import com.manal.expensemanager.repository.InvalidCursorException;
+
+/**
+ * Where a delta-sync client is in the {@code (version, id)} order of changes: it has seen
+ * everything up to and including this pair. Written as {@code version} when a sync caught up
+ * ({@code id} 0) and as {@code version.id} in the middle of a version, which a large bulk
+ * change can span several pages of. A plain version number is therefore also a valid
+ * {@code since}.
+ */
+record SyncPosition(long version, long id) {
+
+    static final SyncPosition START = new SyncPosition(0, 0);
+
+    String format() {
+        return id == 0 ? Long.toString(version) : version + "." + id;
+    }
+
+    static SyncPosition parse(String since) {
+        if (since == null || since.isBlank()) {
+            return START;
+        }
+        try {
+            int dot = since.indexOf('.');
+            SyncPosition position = dot < 0
+                    ? new SyncPosition(Long.parseLong(since), 0)
+                    : new SyncPosition(Long.parseLong(since.substring(0, dot)), Long.parseLong(since.substring(dot + 1)));
+            if (position.version < 0 || position.id < 0) {
+                throw new IllegalArgumentException();
+            }
+            return position;
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid since");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.manal.expensemanager.service.impl;
+
+import com.manal.expensemanager.dto.ExpenseSearchHit;
+import com.manal.expensemanager.repository.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the {@code (rank DESC, id DESC)} ordering of full-text matches: the last hit's
+ * rank and id, as an opaque base64url token. The rank is written with {@link Float#toString},
+ * which reads back to the exact value Postgres returned.
+ */
+record TextSearchCursor(float rank, long id) {
+
+    static TextSearchCursor after(ExpenseSearchHit last) {
+        return new TextSearchCursor(last.rank(), last.expense().id());
+    }
+
+    String encode() {
+        String raw = rank + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static TextSearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new TextSearchCursor(Float.parseFloat(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
@@ -1,46 +1,166 @@
 package com.manal.expensemanager.service.impl;
 
+import com.manal.expensemanager.dto.BatchUserResponse;
 import com.manal.expensemanager.dto.UserRequestDTO;
 import com.manal.expensemanager.model.Role;
 import com.manal.expensemanager.model.User;
+import com.manal.expensemanager.repository.BatchTooLargeException;
+import com.manal.expensemanager.repository.UserBatchRepository;
 import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.password.OffloadingPasswordEncoder;
 import com.manal.expensemanager.service.UserService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    // Rows per lookup/insert round trip; well under Postgres' bind-parameter limit
+    private static final int BATCH_CHUNK = 1000;
+    private static final int MAX_BATCH = 10_000;
+
     private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final UserBatchRepository userBatchRepository;
+    private final Validator validator;
 
     @Override
+    @Transactional
     public User createUser(UserRequestDTO dto) {
 
         if (userRepository.existsByEmail(dto.getEmail())) {
             throw new IllegalArgumentException("User with email '" + dto.getEmail() + "' already exists.");
         }
 
-        Role role;
-        try {
-            role = Role.valueOf(dto.getRole().toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Invalid role: " + dto.getRole());
-        }
+        Role role = parseRole(dto.getRole());
 
         User user = User.builder()
                 .fullName(dto.getFullName())
                 .email(dto.getEmail())
                 .role(role)
+                .password(dto.getPassword() != null ? passwordEncoder.encode(dto.getPassword()) : User.UNUSABLE_PASSWORD)
                 .build();
 
         return userRepository.save(user);
     }
 
+    /**
+     * Creates many users at once. Rows are validated up front, email collisions are checked with
+     * one {@code IN} query per chunk, passwords are hashed in parallel on the hashing pool, and
+     * each chunk is inserted with a single JDBC batch. Bad rows are reported, not fatal.
+     */
+    @Override
+    public BatchUserResponse createUsers(List<UserRequestDTO> dtos) {
+        if (dtos.size() > MAX_BATCH) {
+            throw new BatchTooLargeException("At most " + MAX_BATCH + " users per batch");
+        }
+        List<BatchUserResponse.RowError> errors = new ArrayList<>();
+        int created = 0;
+        Set<String> seen = new HashSet<>();
+
+        for (int from = 0; from < dtos.size(); from += BATCH_CHUNK) {
+            List<UserRequestDTO> chunk = dtos.subList(from, Math.min(from + BATCH_CHUNK, dtos.size()));
+
+            Set<String> emails = new HashSet<>();
+            chunk.forEach(d -> { if (d != null && d.getEmail() != null) emails.add(d.getEmail()); });
+            Set<String> existing = emails.isEmpty() ? Set.of() : userRepository.findExistingEmails(emails);
+
+            List<Integer> rows = new ArrayList<>();
+            List<User> users = new ArrayList<>();
+            List<String> toHash = new ArrayList<>();
+            List<Integer> hashSlots = new ArrayList<>();
+
+            for (int i = 0; i < chunk.size(); i++) {
+                int index = from + i;
+                UserRequestDTO dto = chunk.get(i);
+                if (dto == null) {
+                    errors.add(new BatchUserResponse.RowError(index, null, "User is required"));
+                    continue;
+                }
+                String error = validate(dto);
+                if (error == null && existing.contains(dto.getEmail())) {
+                    error = "User with email '" + dto.getEmail() + "' already exists.";
+                }
+                if (error == null && !seen.add(dto.getEmail())) {
+                    error = "Duplicate email in request";
+                }
+                if (error != null) {
+                    errors.add(new BatchUserResponse.RowError(index, dto.getEmail(), error));
+                    continue;
+                }
+                if (dto.getPassword() != null) {
+                    toHash.add(dto.getPassword());
+                    hashSlots.add(users.size());
+                }
+                rows.add(index);
+                users.add(User.builder()
+                        .fullName(dto.getFullName())
+                        .email(dto.getEmail())
+                        .role(Role.valueOf(dto.getRole().toUpperCase()))
+                        .password(User.UNUSABLE_PASSWORD)
+                        .build());
+            }
+            if (users.isEmpty()) continue;
+
+            List<String> hashes = encodeAll(toHash);
+            for (int h = 0; h < hashes.size(); h++) {
+                users.get(hashSlots.get(h)).setPassword(hashes.get(h));
+            }
+
+            int[] inserted = userBatchRepository.insertIgnoringDuplicates(users);
+            for (int u = 0; u < inserted.length; u++) {
+                if (inserted[u] == 0) {
+                    // taken by a concurrent request after our lookup
+                    errors.add(new BatchUserResponse.RowError(rows.get(u), users.get(u).getEmail(),
+                            "User with email '" + users.get(u).getEmail() + "' already exists."));
+                } else {
+                    created++;
+                }
+            }
+        }
+
+        errors.sort(Comparator.comparingInt(BatchUserResponse.RowError::getIndex));
+        return new BatchUserResponse(created, errors.size(), errors);
+    }
+
     @Override
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
+
+    private String validate(UserRequestDTO dto) {
+        Set<ConstraintViolation<UserRequestDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        try {
+            parseRole(dto.getRole());
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private List<String> encodeAll(List<String> raw) {
+        if (passwordEncoder instanceof OffloadingPasswordEncoder offloading) {
+            return offloading.encodeAll(raw);
+        }
+        return raw.stream().map(passwordEncoder::encode).toList();
+    }
+
+    private static Role parseRole(String role) {
+        try {
+            return Role.valueOf(role.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid role: " + role);
+        }
+    }
 }
@@ -0,0 +1,16 @@
+-- Indexes JPA cannot declare (INCLUDE columns). Built CONCURRENTLY, so writes to expense carry on
+-- while they build; IF NOT EXISTS, because databases set up before migrations already have them.
+
+-- Date order: listings, keyset pages, date-range stats and date-sorted search. Amount and
+-- category filters are checked from the index entries without visiting the heap.
+DROP INDEX CONCURRENTLY IF EXISTS idx_expense_user_date_id; -- earlier, non-covering version of the next one
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_user_date_cover
+    ON expense (user_id, date, id) INCLUDE (amount, category_id);
+
+-- Amount order ("top N largest") and amount-range search
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_user_amount_cover
+    ON expense (user_id, amount, id) INCLUDE (date, category_id);
+
+-- Search restricted to a set of categories, in date order within each
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_user_category_date
+    ON expense (user_id, category_id, date, id) INCLUDE (amount);
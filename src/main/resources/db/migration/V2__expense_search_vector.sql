@@ -0,0 +1,11 @@
+-- Full-text search over title (weight A) and description (weight B). 'simple' configuration:
+-- lowercased words with no stemming or stop words, so prefix queries match what was typed
+-- whatever the language. Adding a stored generated column rewrites expense under an ACCESS
+-- EXCLUSIVE lock, once, when this migration is applied; deploy it when a pause in writes is acceptable.
+ALTER TABLE expense ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (setweight(to_tsvector('simple', title), 'A')
+                         || setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED;
+
+-- btree_gin lets user_id share the GIN index (V3), so a query reads only that user's postings
+-- instead of every user's matches for the term
+CREATE EXTENSION IF NOT EXISTS btree_gin;
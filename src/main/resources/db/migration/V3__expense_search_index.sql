@@ -0,0 +1,4 @@
+-- Ranked full-text search per user (ExpenseTextSearchRepository). Built CONCURRENTLY, so writes
+-- carry on while it builds.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_user_search
+    ON expense USING gin (user_id, search_vector);
@@ -0,0 +1,4 @@
+-- "Any of" (&&) and "all of" (@>) tag filters and bulk re-tagging, per user; user_id shares the
+-- GIN index through btree_gin (V2). Built CONCURRENTLY, so writes carry on while it builds.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_user_tags
+    ON expense USING gin (user_id, tags);
@@ -0,0 +1,28 @@
+-- Delta sync (GET /api/expenses/changes). change_version is the id of the transaction that last
+-- wrote the row, stamped by trigger so every writer is covered, JPA or bulk SQL alike. Rows that
+-- predate the column keep 0 and are picked up by a first sync. Deletes leave an
+-- expense_tombstone row (table mapped by ExpenseTombstone) stamped the same way. The column has
+-- a constant default, so adding it does not rewrite the table.
+ALTER TABLE expense ADD COLUMN IF NOT EXISTS change_version bigint NOT NULL DEFAULT 0;
+
+CREATE OR REPLACE FUNCTION expense_stamp_change_version() RETURNS trigger LANGUAGE plpgsql AS
+'BEGIN
+    NEW.change_version := pg_current_xact_id()::text::bigint;
+    RETURN NEW;
+END';
+
+CREATE OR REPLACE TRIGGER expense_change_version
+    BEFORE INSERT OR UPDATE ON expense
+    FOR EACH ROW EXECUTE FUNCTION expense_stamp_change_version();
+
+CREATE OR REPLACE FUNCTION expense_record_tombstone() RETURNS trigger LANGUAGE plpgsql AS
+'BEGIN
+    INSERT INTO expense_tombstone (expense_id, user_id, change_version)
+    VALUES (OLD.id, OLD.user_id, pg_current_xact_id()::text::bigint)
+    ON CONFLICT (expense_id) DO NOTHING;
+    RETURN OLD;
+END';
+
+CREATE OR REPLACE TRIGGER expense_tombstone
+    AFTER DELETE ON expense
+    FOR EACH ROW EXECUTE FUNCTION expense_record_tombstone();
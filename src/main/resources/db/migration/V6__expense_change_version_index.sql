@@ -0,0 +1,4 @@
+-- Delta-sync reads per user in (change_version, id) order. Built CONCURRENTLY, so writes carry
+-- on while it builds.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expense_user_change_version
+    ON expense (user_id, change_version, id);
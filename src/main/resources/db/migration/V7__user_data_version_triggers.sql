@@ -0,0 +1,22 @@
+-- users.data_version (mapped, read-only) versions everything derived from a user's expenses; the
+-- ETags of the listing and stats endpoints come from it. Statement-level triggers bump it once
+-- per affected user per statement, however many rows a bulk write touches.
+-- Databases that ran the old always-run schema.sql already have these; OR REPLACE adopts them.
+CREATE OR REPLACE FUNCTION expense_bump_user_data_version() RETURNS trigger LANGUAGE plpgsql AS
+'BEGIN
+    UPDATE users SET data_version = data_version + 1
+    WHERE id IN (SELECT DISTINCT user_id FROM changed_rows);
+    RETURN NULL;
+END';
+
+CREATE OR REPLACE TRIGGER expense_data_version_insert
+    AFTER INSERT ON expense REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION expense_bump_user_data_version();
+
+CREATE OR REPLACE TRIGGER expense_data_version_update
+    AFTER UPDATE ON expense REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION expense_bump_user_data_version();
+
+CREATE OR REPLACE TRIGGER expense_data_version_delete
+    AFTER DELETE ON expense REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION expense_bump_user_data_version();
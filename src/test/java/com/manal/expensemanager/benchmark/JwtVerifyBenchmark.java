@@ -0,0 +1,58 @@
+package com.manal.expensemanager.benchmark;
+
+import com.manal.expensemanager.security.jwt.JwtClaims;
+import com.manal.expensemanager.security.jwt.JwtService;
+import com.manal.expensemanager.security.jwt.VerifiedTokenCache;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Clock;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of access-token verification in {@code JwtAuthenticationFilter}:
+ * a full HS256 check versus a hit in {@link VerifiedTokenCache}.
+ * Run with {@code main} from the IDE after {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("benchmark-secret-benchmark-secret-0123".getBytes());
+
+    private JwtService uncached;
+    private JwtService cached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncached = new JwtService(SECRET);
+        cached = new JwtService(SECRET, new VerifiedTokenCache(true, 10_000, Clock.systemUTC()));
+        token = uncached.generateToken("alice@test.io");
+        cached.verify(token); // prime
+    }
+
+    @Benchmark
+    public JwtClaims verifyWithoutCache() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public JwtClaims verifyWithCache() {
+        return cached.verify(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerifyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,110 @@
+package com.manal.expensemanager.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.manal.expensemanager.dto.CursorPage;
+import com.manal.expensemanager.dto.ExpenseView;
+import com.manal.expensemanager.dto.MonthlyStatDTO;
+import com.manal.expensemanager.dto.PageResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Encode and decode cost of the expense listing and monthly stats payloads as JSON, CBOR and
+ * Smile, with mappers configured the way {@code WebConfig} and Boot configure theirs.
+ * {@code main} prints the encoded sizes before running. Run it from the IDE after
+ * {@code mvn test-compile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    /** A full 24-month stats page, or a default-sized (50) page of the cursor listing. */
+    @Param({"monthly", "expenses"})
+    public String payload;
+
+    private ObjectMapper mapper;
+    private JavaType type;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = mapper(format);
+        boolean monthly = payload.equals("monthly");
+        type = monthly
+                ? mapper.getTypeFactory().constructParametricType(PageResponse.class, MonthlyStatDTO.class)
+                : mapper.getTypeFactory().constructParametricType(CursorPage.class, ExpenseView.class);
+        value = monthly ? monthlyPage() : expensePage();
+        encoded = mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return mapper.readValue(encoded, type);
+    }
+
+    static ObjectMapper mapper(String format) {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        // Boot's builder disables timestamp dates; a plain Jackson2ObjectMapperBuilder does not
+        return Jackson2ObjectMapperBuilder.json().factory(factory)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    static PageResponse<MonthlyStatDTO> monthlyPage() {
+        List<MonthlyStatDTO> months = IntStream.range(0, 24)
+                .mapToObj(i -> new MonthlyStatDTO("%d-%02d".formatted(2024 + i / 12, i % 12 + 1), 1234.56 + i * 17.25))
+                .toList();
+        return new PageResponse<>(months, 0, 24, false, 24L, 1);
+    }
+
+    static CursorPage<ExpenseView> expensePage() {
+        List<ExpenseView> items = IntStream.range(0, 50)
+                .mapToObj(i -> new ExpenseView(10_000L + i, "Groceries " + i, i % 3 == 0 ? null : "Weekly shop at the market",
+                        42.5 + i, LocalDate.of(2025, 7, 1).plusDays(i % 28), 3L, "Food",
+                        i % 2 == 0 ? List.of("family", "weekly") : List.of()))
+                .toList();
+        return new CursorPage<>(items, "MjAyNS0wNy0yOHwxMDA0OQ");
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        for (String format : List.of("json", "cbor", "smile")) {
+            ObjectMapper mapper = mapper(format);
+            System.out.printf("%-6s monthly=%d bytes, expenses=%d bytes%n", format,
+                    mapper.writeValueAsBytes(monthlyPage()).length, mapper.writeValueAsBytes(expensePage()).length);
+        }
+        new Runner(new OptionsBuilder()
+                .include(SerializationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -7,6 +7,7 @@ import com.manal.expensemanager.auth.refresh.RefreshTokenRepository;
 import com.manal.expensemanager.model.Role;
 import com.manal.expensemanager.model.User;
 import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.revocation.RevokedAccessTokenRepository;
 import com.manal.expensemanager.testsupport.PostgresITBase;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,6 +20,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -31,6 +33,7 @@ class AuthControllerIT extends PostgresITBase {
     @Autowired MockMvc mvc;
     @Autowired UserRepository userRepository;
     @Autowired RefreshTokenRepository refreshTokenRepository;
+    @Autowired RevokedAccessTokenRepository revokedAccessTokenRepository;
     @Autowired PasswordEncoder passwordEncoder;
     @Autowired ObjectMapper om;
 
@@ -40,6 +43,7 @@ class AuthControllerIT extends PostgresITBase {
     void clean() {
         // IMPORTANT: delete children first to satisfy FKs
         refreshTokenRepository.deleteAllInBatch();
+        revokedAccessTokenRepository.deleteAllInBatch();
         userRepository.deleteAllInBatch();
     }
 
@@ -81,4 +85,65 @@ class AuthControllerIT extends PostgresITBase {
                 .andExpect(jsonPath("$.accessToken").isNotEmpty())
                 .andExpect(jsonPath("$.refreshToken").isNotEmpty());
     }
+
+    @Test
+    void logout_shouldRevokeAccessToken() throws Exception {
+        var signup = SignupRequest.builder()
+                .fullName("Alice Doe")
+                .email("alice@test.io")
+                .password("Password123")
+                .role("USER")
+                .build();
+        var body = mvc.perform(post("/api/auth/signup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json(signup)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        var tokens = om.readTree(body);
+        String access = tokens.get("accessToken").asText();
+
+        mvc.perform(get("/api/expenses/total").header("Authorization", "Bearer " + access))
+                .andExpect(status().isOk());
+
+        mvc.perform(post("/api/auth/logout")
+                        .header("Authorization", "Bearer " + access)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + tokens.get("refreshToken").asText() + "\"}"))
+                .andExpect(status().isNoContent());
+
+        mvc.perform(get("/api/expenses/total").header("Authorization", "Bearer " + access))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void refresh_shouldRejectEvictedToken_andKeepOtherSessions() throws Exception {
+        userRepository.save(User.builder()
+                .fullName("Alice Doe")
+                .email("alice@test.io")
+                .password(passwordEncoder.encode("Password123"))
+                .role(Role.USER)
+                .build());
+        var login = json(AuthRequest.builder().email("alice@test.io").password("Password123").build());
+        String[] refreshTokens = new String[6]; // max-sessions is 5: the sixth login evicts the first
+        for (int i = 0; i < refreshTokens.length; i++) {
+            var body = mvc.perform(post("/api/auth/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(login))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            refreshTokens[i] = om.readTree(body).get("refreshToken").asText();
+        }
+
+        mvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"refreshToken\":\"" + refreshTokens[0] + "\"}"))
+                .andExpect(status().isUnauthorized());
+
+        for (int i = 1; i < refreshTokens.length; i++) {
+            mvc.perform(post("/api/auth/refresh")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"refreshToken\":\"" + refreshTokens[i] + "\"}"))
+                    .andExpect(status().isOk());
+        }
+    }
 }
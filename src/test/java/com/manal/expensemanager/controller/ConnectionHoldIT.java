@@ -0,0 +1,202 @@
+package com.manal.expensemanager.controller;
+
+import com.manal.expensemanager.dto.ExpenseView;
+import com.manal.expensemanager.model.Category;
+import com.manal.expensemanager.model.Expense;
+import com.manal.expensemanager.model.Role;
+import com.manal.expensemanager.model.User;
+import com.manal.expensemanager.repository.CategoryRepository;
+import com.manal.expensemanager.repository.ExpenseRepository;
+import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
+import com.manal.expensemanager.testsupport.PostgresITBase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewFilter;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Connection hold time with open-session-in-view off (the application's setting) compared to
+ * the same requests wrapped in {@link OpenEntityManagerInViewFilter}, which is what OSIV did.
+ * The test pool has 3 connections, so holding one through serialization shows up as acquire wait.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConnectionHoldIT extends PostgresITBase {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionHoldIT.class);
+
+    private static final int CLIENTS = 12;
+    private static final int REQUESTS_PER_CLIENT = 20;
+
+    @Autowired MockMvc mvc;
+    @Autowired WebApplicationContext context;
+    @Autowired DataSource dataSource;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired ActiveConnectionsAtWrite activeAtWrite;
+    @Autowired ExpenseRepository expenseRepository;
+    @Autowired CategoryRepository categoryRepository;
+    @Autowired UserRepository userRepository;
+
+    MockMvc mvcWithOpenInView;
+    AuthenticatedUser alice;
+
+    @BeforeEach
+    void setup() {
+        expenseRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+
+        User owner = userRepository.save(User.builder()
+                .fullName("Alice Doe").email("alice@test.io")
+                .password("x").role(Role.USER).build());
+        Category food = categoryRepository.save(Category.builder().name("Food").build());
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            expenses.add(Expense.builder()
+                    .title("Expense " + i).description("row " + i).amount(1.0 + i)
+                    .date(LocalDate.of(2024, 1, 1).plusDays(i))
+                    .user(owner).category(food).build());
+        }
+        expenseRepository.saveAll(expenses);
+
+        alice = new AuthenticatedUser(owner.getId(), owner.getEmail(), owner.getFullName(), Role.USER, null);
+        mvcWithOpenInView = MockMvcBuilders.webAppContextSetup(context)
+                .addFilters(new OpenEntityManagerInViewFilter())
+                .apply(springSecurity())
+                .build();
+    }
+
+    @Test
+    void openInView_shouldBeDisabled() {
+        assertThat(context.getBeanNamesForType(OpenEntityManagerInViewInterceptor.class)).isEmpty();
+    }
+
+    @Test
+    void connection_shouldBeBackInPool_beforeTheBodyIsWritten() throws Exception {
+        mvc.perform(get("/api/expenses").param("size", "200").with(user(alice)));
+        assertThat(activeAtWrite.last).isZero();
+
+        // the old behaviour, for contrast: the request still owns its connection while writing
+        mvcWithOpenInView.perform(get("/api/expenses").param("size", "200").with(user(alice)));
+        assertThat(activeAtWrite.last).isEqualTo(1);
+    }
+
+    @Test
+    void lazyAssociation_shouldFailFast_outsideATransaction() {
+        Long id = expenseRepository.findAll().get(0).getId();
+        Expense detached = expenseRepository.findById(id).orElseThrow();
+
+        assertThatThrownBy(() -> ExpenseView.of(detached))
+                .isInstanceOf(LazyInitializationException.class);
+    }
+
+    @Test
+    void poolWait_underConcurrentListings_withAndWithoutOpenInView() throws Exception {
+        Duration before = acquireWaitUnderLoad(mvcWithOpenInView);
+        Duration after = acquireWaitUnderLoad(mvc);
+
+        log.info("Connection acquire wait for {} listings on a {}-connection pool: open-in-view {} ms, without {} ms",
+                CLIENTS * REQUESTS_PER_CLIENT, hikari().getMaximumPoolSize(), before.toMillis(), after.toMillis());
+        assertThat(after).isLessThanOrEqualTo(before);
+    }
+
+    private Duration acquireWaitUnderLoad(MockMvc client) throws Exception {
+        Timer acquire = meterRegistry.get("hikaricp.connections.acquire").timer();
+        double waitedBefore = acquire.totalTime(TimeUnit.NANOSECONDS);
+
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                results.add(pool.submit(() -> {
+                    int ok = 0;
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        int status = client.perform(get("/api/expenses").param("size", "200").with(user(alice)))
+                                .andReturn().getResponse().getStatus();
+                        if (status == 200) ok++;
+                    }
+                    return ok;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertThat(result.get(2, TimeUnit.MINUTES)).isEqualTo(REQUESTS_PER_CLIENT);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return Duration.ofNanos((long) (acquire.totalTime(TimeUnit.NANOSECONDS) - waitedBefore));
+    }
+
+    private HikariDataSource hikari() throws Exception {
+        return dataSource.unwrap(HikariDataSource.class);
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ActiveConnectionsAtWrite activeConnectionsAtWrite(DataSource dataSource) throws Exception {
+            return new ActiveConnectionsAtWrite(dataSource.unwrap(HikariDataSource.class));
+        }
+    }
+
+    /** Samples the pool's busy connections right before the response body is serialized. */
+    @ControllerAdvice
+    static class ActiveConnectionsAtWrite implements ResponseBodyAdvice<Object> {
+        private final HikariDataSource hikari;
+        volatile int last = -1;
+
+        ActiveConnectionsAtWrite(HikariDataSource hikari) {
+            this.hikari = hikari;
+        }
+
+        @Override
+        public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+            return true;
+        }
+
+        @Override
+        public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType contentType,
+                                      Class<? extends HttpMessageConverter<?>> converterType,
+                                      ServerHttpRequest request, ServerHttpResponse response) {
+            last = hikari.getHikariPoolMXBean().getActiveConnections();
+            return body;
+        }
+    }
+}
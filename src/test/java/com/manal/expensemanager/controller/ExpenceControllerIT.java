@@ -3,7 +3,10 @@ package com.manal.expensemanager.controller;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.*;
 import org.springframework.http.HttpHeaders;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.manal.expensemanager.model.Category;
 import com.manal.expensemanager.model.Expense;
 import com.manal.expensemanager.model.Role;
@@ -25,6 +28,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -109,9 +113,68 @@ class ExpenseControllerIT extends PostgresITBase {
     void getMine_shouldReturnOnlyCurrentUsersExpenses() throws Exception {
         mvc.perform(get("/api/expenses"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2)) // Alice has 2 from setup
-                .andExpect(jsonPath("$[?(@.title=='Lunch')]").exists())
-                .andExpect(jsonPath("$[?(@.title=='Train')]").exists());
+                .andExpect(jsonPath("$.items.length()").value(2)) // Alice has 2 from setup
+                .andExpect(jsonPath("$.items[0].title").value("Train")) // newest first
+                .andExpect(jsonPath("$.items[1].title").value("Lunch"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void getMine_shouldWalkAllPages_viaCursor() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            expenseRepository.save(Expense.builder()
+                    .title("Same day " + i).amount(1.0).date(LocalDate.of(2025, 9, 2))
+                    .user(alice).category(food).build());
+        }
+
+        var seen = new java.util.ArrayList<String>();
+        String cursor = null;
+        do {
+            var req = get("/api/expenses").param("size", "3");
+            if (cursor != null) req.param("cursor", cursor);
+            var json = om.readTree(mvc.perform(req).andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            json.get("items").forEach(n -> seen.add(n.get("title").asText()));
+            cursor = json.hasNonNull("nextCursor") ? json.get("nextCursor").asText() : null;
+        } while (cursor != null);
+
+        // 7 rows, none repeated or skipped across pages, ties on date broken by id
+        assertThat(seen).hasSize(7).doesNotHaveDuplicates().endsWith("Lunch");
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void getMine_shouldRejectMalformedCursor() throws Exception {
+        mvc.perform(get("/api/expenses").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void stream_shouldWriteJsonArray_andNdjson() throws Exception {
+        mvc.perform(get("/api/expenses/stream"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].title").value("Train"));
+
+        var body = mvc.perform(get("/api/expenses/stream").param("format", "ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        var lines = body.strip().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(om.readTree(lines[1]).get("title").asText()).isEqualTo("Lunch");
+    }
+
+    @Test
+    @WithMockUser(username = "admin@test.io", roles = "ADMIN")
+    void adminStream_shouldReturnRequestedUsersExpenses() throws Exception {
+        mvc.perform(get("/api/expenses/admin/by-user/stream").param("userId", bob.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].title").value("Groceries"));
     }
 
     @Test
@@ -124,6 +187,33 @@ class ExpenseControllerIT extends PostgresITBase {
                 .andExpect(jsonPath("$.content[?(@.month=='2025-09')]").exists());
     }
 
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void listingAndStats_shouldNegotiateBinaryFormats_withTheJsonSchema() throws Exception {
+        var cbor = new ObjectMapper(new CBORFactory());
+        var smile = new ObjectMapper(new SmileFactory());
+        for (String url : List.of("/api/expenses", "/api/expenses/monthly")) {
+            JsonNode json = om.readTree(mvc.perform(get(url).accept(MediaType.APPLICATION_JSON))
+                    .andReturn().getResponse().getContentAsByteArray());
+
+            byte[] cborBody = mvc.perform(get(url).accept(MediaType.APPLICATION_CBOR))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                    .andReturn().getResponse().getContentAsByteArray();
+            byte[] smileBody = mvc.perform(get(url).accept("application/x-jackson-smile"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-jackson-smile"))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            assertThat(cbor.readTree(cborBody)).isEqualTo(json);
+            assertThat(smile.readTree(smileBody)).isEqualTo(json);
+        }
+        // dates stay ISO strings rather than becoming arrays
+        assertThat(cbor.readTree(mvc.perform(get("/api/expenses").accept(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray()).at("/items/0/date").asText())
+                .isEqualTo("2025-09-02");
+    }
+
     @Test
     @WithMockUser(username = "admin@test.io", roles = "ADMIN")
     void adminMonthly_shouldReturnStats_forRequestedUser() throws Exception {
@@ -175,6 +265,441 @@ class ExpenseControllerIT extends PostgresITBase {
         assertThat(body).contains("35");  // Travel total
     }
 
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void byCategory_shouldSortAndPageInTheDatabase() throws Exception {
+        mvc.perform(get("/api/expenses/by-category")
+                        .param("sort", "totalAmount,desc").param("size", "1").param("page", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].categoryName").value("Food"))
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.totalPages").value(2));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void monthly_shouldDefaultToNewestFirst() throws Exception {
+        mvc.perform(get("/api/expenses/monthly"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].month").value("2025-09"))
+                .andExpect(jsonPath("$.content[1].month").value("2025-08"));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void monthly_sliceMode_shouldReportNextPage_withoutTotals() throws Exception {
+        mvc.perform(get("/api/expenses/monthly").param("count", "false").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].month").value("2025-09"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.pageable").doesNotExist());
+
+        mvc.perform(get("/api/expenses/monthly").param("count", "false").param("size", "1").param("page", "1"))
+                .andExpect(jsonPath("$.content[0].month").value("2025-08"))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void stats_shouldOnlyCoverTheRequestedWindow() throws Exception {
+        mvc.perform(get("/api/expenses/total").param("to", "2025-08-22"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("15.0")); // "to" includes its own day
+
+        mvc.perform(get("/api/expenses/monthly").param("from", "2025-09-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].month").value("2025-09"));
+
+        mvc.perform(get("/api/expenses/by-category")
+                        .param("from", "2025-08-01").param("to", "2025-08-31"))
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].categoryName").value("Food"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin@test.io", roles = "ADMIN")
+    void adminAnnualExport_shouldHonourRange() throws Exception {
+        var body = mvc.perform(get("/api/expenses/admin/annual/export")
+                        .param("userId", bob.getId().toString()).param("from", "2026-01-01"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.trim()).isEqualTo("Year,Total");
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void stats_shouldRejectReversedRange() throws Exception {
+        mvc.perform(get("/api/expenses/annual").param("from", "2025-09-01").param("to", "2025-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void dashboard_shouldReturnEveryAggregate_forCurrentUser() throws Exception {
+        mvc.perform(get("/api/expenses/dashboard"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(50.0))
+                .andExpect(jsonPath("$.monthly[0].month").value("2025-08"))
+                .andExpect(jsonPath("$.monthly[0].totalAmount").value(15.0))
+                .andExpect(jsonPath("$.monthly[1].month").value("2025-09"))
+                .andExpect(jsonPath("$.byCategory[0].categoryName").value("Food"))
+                .andExpect(jsonPath("$.byCategory[1].categoryName").value("Travel"))
+                .andExpect(jsonPath("$.byCategory[1].totalAmount").value(35.0))
+                .andExpect(jsonPath("$.annual.length()").value(1))
+                .andExpect(jsonPath("$.annual[0].year").value("2025"))
+                .andExpect(jsonPath("$.annual[0].totalAmount").value(50.0));
+    }
+
+    @Test
+    @WithMockUser(username = "admin@test.io", roles = "ADMIN")
+    void adminDashboard_shouldReturnRequestedUsersAggregates_withinRange() throws Exception {
+        mvc.perform(get("/api/expenses/admin/dashboard").param("userId", bob.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(60.0))
+                .andExpect(jsonPath("$.byCategory.length()").value(1));
+
+        mvc.perform(get("/api/expenses/admin/dashboard")
+                        .param("userId", bob.getId().toString()).param("to", "2025-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").doesNotExist())
+                .andExpect(jsonPath("$.monthly.length()").value(0));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void trends_shouldReturnDeltas_cumulativeSeries_andShares() throws Exception {
+        mvc.perform(get("/api/expenses/trends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.months.length()").value(2))
+                .andExpect(jsonPath("$.months[0].month").value("2025-08"))
+                .andExpect(jsonPath("$.months[0].monthOverMonth").doesNotExist())
+                .andExpect(jsonPath("$.months[1].monthOverMonth").value(20.0))
+                .andExpect(jsonPath("$.months[1].cumulative").value(50.0))
+                .andExpect(jsonPath("$.categories[0].categoryName").value("Food"))
+                .andExpect(jsonPath("$.categories[0].share").value(0.3))
+                .andExpect(jsonPath("$.categories[1].share").value(0.7));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void trends_shouldFillEmptyMonths_soYearOverYearLinesUp() throws Exception {
+        expenseRepository.save(Expense.builder()
+                .title("Books").amount(10.0).date(LocalDate.of(2024, 9, 10))
+                .user(alice).category(food).build());
+
+        mvc.perform(get("/api/expenses/trends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.months.length()").value(13)) // 2024-09 .. 2025-09
+                .andExpect(jsonPath("$.months[1].month").value("2024-10"))
+                .andExpect(jsonPath("$.months[1].total").value(0.0))
+                .andExpect(jsonPath("$.months[12].yearOverYear").value(25.0))
+                .andExpect(jsonPath("$.months[12].yearOverYearRatio").value(2.5));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void search_shouldCombineFilters() throws Exception {
+        mvc.perform(get("/api/expenses/search").param("minAmount", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].title").value("Train"));
+
+        mvc.perform(get("/api/expenses/search")
+                        .param("categoryIds", food.getId() + "," + travel.getId())
+                        .param("from", "2025-08-01").param("to", "2025-08-31"))
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].title").value("Lunch"));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void search_topByAmount_shouldPageWithCursor() throws Exception {
+        String body = mvc.perform(get("/api/expenses/search").param("sort", "amount,desc").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].title").value("Train"))
+                .andExpect(jsonPath("$.nextCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = om.readTree(body).get("nextCursor").asText();
+
+        mvc.perform(get("/api/expenses/search").param("sort", "amount,desc").param("size", "1").param("cursor", cursor))
+                .andExpect(jsonPath("$.items[0].title").value("Lunch"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        // a cursor from another ordering, or none of ours at all, is a bad request
+        mvc.perform(get("/api/expenses/search").param("sort", "date").param("cursor", cursor))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/expenses/search").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void textSearch_shouldRankTitleMatchesFirst_andHighlight() throws Exception {
+        expenseRepository.save(Expense.builder()
+                .title("Team lunch").description("paid for coffee afterwards").amount(42.0)
+                .date(LocalDate.of(2025, 9, 3)).user(alice).category(food).build());
+        expenseRepository.save(Expense.builder()
+                .title("Coffee shop").description("flat white").amount(4.0)
+                .date(LocalDate.of(2025, 9, 1)).user(alice).category(food).build());
+        expenseRepository.save(Expense.builder()
+                .title("Coffee beans").amount(12.0).date(LocalDate.of(2025, 9, 4))
+                .user(bob).category(food).build());
+
+        mvc.perform(get("/api/expenses/search/text").param("q", "COF"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2)) // Bob's beans stay his
+                .andExpect(jsonPath("$.items[0].expense.title").value("Coffee shop"))
+                .andExpect(jsonPath("$.items[0].titleHighlight").value("<mark>Coffee</mark> shop"))
+                .andExpect(jsonPath("$.items[1].expense.title").value("Team lunch"))
+                .andExpect(jsonPath("$.items[1].descriptionHighlight").value(containsString("<mark>coffee</mark>")))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        // every word must match
+        mvc.perform(get("/api/expenses/search/text").param("q", "coffee, fla"))
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].expense.title").value("Coffee shop"));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void textSearch_shouldPageWithCursor_andRejectEmptyText() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            expenseRepository.save(Expense.builder()
+                    .title("Taxi ride " + i).amount(10.0 + i).date(LocalDate.of(2025, 9, 10 + i))
+                    .user(alice).category(travel).build());
+        }
+        String body = mvc.perform(get("/api/expenses/search/text").param("q", "taxi").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = om.readTree(body).get("nextCursor").asText();
+
+        mvc.perform(get("/api/expenses/search/text").param("q", "taxi").param("size", "2").param("cursor", cursor))
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mvc.perform(get("/api/expenses/search/text").param("q", "&!:*"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/expenses/search/text").param("q", "taxi").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void create_shouldStoreNormalizedTags_andSearchShouldFilterByThem() throws Exception {
+        var payload = """
+                {"title":"Hotel","amount":120,"date":"2025-09-12","categoryId":%d,"tags":["Work","trip","work"]}
+                """.formatted(travel.getId());
+        mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(payload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tags", contains("trip", "work")));
+        expenseRepository.save(Expense.builder()
+                .title("Dinner").amount(30.0).date(LocalDate.of(2025, 9, 13))
+                .tags(List.of("trip")).user(alice).category(food).build());
+
+        mvc.perform(get("/api/expenses/search").param("anyTags", "work,TRIP"))
+                .andExpect(jsonPath("$.items[*].title", contains("Dinner", "Hotel")));
+        mvc.perform(get("/api/expenses/search").param("allTags", "work,trip"))
+                .andExpect(jsonPath("$.items[*].title", contains("Hotel")));
+
+        mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON)
+                        .content(payload.replace("\"trip\"", "\"two words\"")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void byTag_shouldCountAnExpenseUnderEachOfItsTags() throws Exception {
+        expenseRepository.save(Expense.builder()
+                .title("Hotel").amount(100.0).date(LocalDate.of(2025, 9, 12))
+                .tags(List.of("trip", "work")).user(alice).category(travel).build());
+        expenseRepository.save(Expense.builder()
+                .title("Dinner").amount(30.0).date(LocalDate.of(2025, 9, 13))
+                .tags(List.of("trip")).user(alice).category(food).build());
+        expenseRepository.save(Expense.builder()
+                .title("Bob's trip").amount(500.0).date(LocalDate.of(2025, 9, 13))
+                .tags(List.of("trip")).user(bob).category(travel).build());
+
+        mvc.perform(get("/api/expenses/by-tag"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].tag", contains("trip", "work"))) // biggest first
+                .andExpect(jsonPath("$.content[0].totalAmount").value(130.0))
+                .andExpect(jsonPath("$.content[0].expenseCount").value(2))
+                .andExpect(jsonPath("$.content[1].totalAmount").value(100.0))
+                .andExpect(jsonPath("$.totalElements").value(2));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void retag_shouldRenameATag_acrossOnlyTheCurrentUsersExpenses() throws Exception {
+        var hotel = expenseRepository.save(Expense.builder()
+                .title("Hotel").amount(100.0).date(LocalDate.of(2025, 9, 12))
+                .tags(List.of("trip", "work")).user(alice).category(travel).build());
+        var bobs = expenseRepository.save(Expense.builder()
+                .title("Bob's trip").amount(500.0).date(LocalDate.of(2025, 9, 13))
+                .tags(List.of("trip")).user(bob).category(travel).build());
+
+        mvc.perform(post("/api/expenses/retag").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"remove\":[\"trip\"],\"add\":[\"Travel\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1));
+
+        assertThat(expenseRepository.findById(hotel.getId()).orElseThrow().getTags()).containsExactly("travel", "work");
+        assertThat(expenseRepository.findById(bobs.getId()).orElseThrow().getTags()).containsExactly("trip");
+
+        // adding to everything needs explicit ids
+        mvc.perform(post("/api/expenses/retag").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"add\":[\"x\"]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void retag_shouldSkipExpenses_thatWouldExceedTheTagLimit() throws Exception {
+        var full = expenseRepository.save(Expense.builder()
+                .title("Tagged").amount(1.0).date(LocalDate.of(2025, 9, 12))
+                .tags(java.util.stream.IntStream.range(0, 19).mapToObj(i -> "t" + (10 + i)).toList())
+                .user(alice).category(food).build());
+        var light = expenseRepository.save(Expense.builder()
+                .title("Light").amount(1.0).date(LocalDate.of(2025, 9, 12))
+                .tags(List.of("t10")).user(alice).category(food).build());
+
+        mvc.perform(post("/api/expenses/retag").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"expenseIds\":[%d,%d],\"add\":[\"a\",\"b\"]}".formatted(full.getId(), light.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.skipped").value(1));
+
+        assertThat(expenseRepository.findById(full.getId()).orElseThrow().getTags()).hasSize(19);
+        assertThat(expenseRepository.findById(light.getId()).orElseThrow().getTags()).containsExactly("a", "b", "t10");
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void retag_shouldLeaveTagsAlone_whenTheSetDoesNotChange() throws Exception {
+        // code-point order, as ExpenseTags stores them; a linguistic collation puts "ab" first
+        var expense = expenseRepository.save(Expense.builder()
+                .title("Tagged").amount(1.0).date(LocalDate.of(2025, 9, 12))
+                .tags(List.of("a-b", "ab")).user(alice).category(food).build());
+
+        mvc.perform(post("/api/expenses/retag").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"expenseIds\":[%d],\"add\":[\"ab\"]}".formatted(expense.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(0))
+                .andExpect(jsonPath("$.skipped").value(0));
+
+        assertThat(expenseRepository.findById(expense.getId()).orElseThrow().getTags()).containsExactly("a-b", "ab");
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void changes_shouldReturnOnlyWhatChangedSinceTheLastSync() throws Exception {
+        String body = mvc.perform(get("/api/expenses/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[*].expense.title", contains("Lunch", "Train"))) // first sync: everything
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andReturn().getResponse().getContentAsString();
+        String since = om.readTree(body).get("since").asText();
+
+        mvc.perform(get("/api/expenses/changes").param("since", since))
+                .andExpect(jsonPath("$.changes").isEmpty());
+
+        var lunch = expenseRepository.findByUser(alice).stream()
+                .filter(e -> e.getTitle().equals("Lunch")).findFirst().orElseThrow();
+        var train = expenseRepository.findByUser(alice).stream()
+                .filter(e -> e.getTitle().equals("Train")).findFirst().orElseThrow();
+        mvc.perform(post("/api/expenses/retag").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"expenseIds\":[%d],\"add\":[\"work\"]}".formatted(train.getId())))
+                .andExpect(status().isOk());
+        mvc.perform(delete("/api/expenses/{id}", lunch.getId()))
+                .andExpect(status().isNoContent());
+
+        mvc.perform(get("/api/expenses/changes").param("since", since))
+                .andExpect(jsonPath("$.changes.length()").value(2))
+                .andExpect(jsonPath("$.changes[0].id").value(train.getId()))
+                .andExpect(jsonPath("$.changes[0].expense.tags", contains("work")))
+                .andExpect(jsonPath("$.changes[1].id").value(lunch.getId()))
+                .andExpect(jsonPath("$.changes[1].deleted").value(true))
+                .andExpect(jsonPath("$.changes[1].expense").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void changes_shouldPageUntilCaughtUp() throws Exception {
+        String since = null;
+        int seen = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+            var request = get("/api/expenses/changes").param("size", "1");
+            if (since != null) request.param("since", since);
+            var json = om.readTree(mvc.perform(request).andReturn().getResponse().getContentAsString());
+            seen += json.get("changes").size();
+            since = json.get("since").asText();
+            hasMore = json.get("hasMore").asBoolean();
+        }
+        assertThat(seen).isEqualTo(2);
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void changes_shouldRejectMalformedSince() throws Exception {
+        for (String since : List.of("12.x", "-1", "abc")) {
+            mvc.perform(get("/api/expenses/changes").param("since", since))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void delete_shouldNotTouchOtherUsersExpenses() throws Exception {
+        var bobs = expenseRepository.findByUser(bob).get(0);
+
+        mvc.perform(delete("/api/expenses/{id}", bobs.getId()))
+                .andExpect(status().isNotFound());
+        assertThat(expenseRepository.existsById(bobs.getId())).isTrue();
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void stats_shouldBeNotModified_untilTheUsersExpensesChange() throws Exception {
+        String etag = mvc.perform(get("/api/expenses/annual/export"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/api/expenses/annual/export").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // someone else's expenses don't invalidate Alice's figures
+        expenseRepository.save(Expense.builder()
+                .title("Bob's dinner").amount(40.0).date(LocalDate.of(2025, 9, 6))
+                .user(bob).category(food).build());
+        mvc.perform(get("/api/expenses/annual/export").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        var payload = """
+                {"title":"Coffee","amount":3.5,"date":"2025-09-10","categoryId":%d}
+                """.formatted(food.getId());
+        mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(payload))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/expenses/annual/export").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(content().string(containsString("2025,53.50")));
+    }
+
+    @Test
+    @WithMockUser(username = "alice@test.io", roles = "USER")
+    void stats_shouldRejectUnknownSortProperty() throws Exception {
+        mvc.perform(get("/api/expenses/annual").param("sort", "amount; DROP TABLE expense"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "admin@test.io", roles = "ADMIN")
     void adminByCategory_shouldReturnPaged_forRequestedUser() throws Exception {
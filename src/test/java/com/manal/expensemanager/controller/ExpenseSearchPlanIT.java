@@ -0,0 +1,225 @@
+package com.manal.expensemanager.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manal.expensemanager.model.Role;
+import com.manal.expensemanager.security.AuthenticatedUser;
+import com.manal.expensemanager.testsupport.CapturingStatementInspector;
+import com.manal.expensemanager.testsupport.PostgresITBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs every supported search shape against a seeded table and EXPLAINs the exact SQL Hibernate
+ * sent, asserting that none of them scans the whole expense table.
+ * <p>
+ * By default it seeds 100k rows, 5,000 per user. That is the per-user density the plans depend
+ * on, but on a table this small a sequential scan is often cheapest anyway, so the EXPLAINs run
+ * with {@code enable_seqscan} off. That checks the shape: an index can answer each query.
+ * {@code -Dsearch.plan.rows=10000000} (a few minutes) seeds at volume instead and leaves the
+ * planner free, which checks that it actually prefers those indexes.
+ * <p>
+ * Plans are generic ({@code EXPLAIN (GENERIC_PLAN)}, Postgres 16), i.e. what a prepared
+ * statement gets once it stops being re-planned per parameter set. Full-text search and the
+ * change feed run on JDBC rather than Hibernate, so their SQL is taken from a spy on the
+ * template instead.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.manal.expensemanager.testsupport.CapturingStatementInspector")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ExpenseSearchPlanIT extends PostgresITBase {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseSearchPlanIT.class);
+
+    private static final boolean AT_VOLUME = System.getProperty("search.plan.rows") != null;
+    private static final long ROWS = Long.getLong("search.plan.rows", 100_000L);
+    private static final int ROWS_PER_USER = 5_000;
+    private static final int USERS = (int) Math.max(1, ROWS / ROWS_PER_USER);
+    private static final int CATEGORIES = 20;
+    private static final Pattern BIND = Pattern.compile("\\?");
+
+    private static AuthenticatedUser owner;
+    private static long firstCategory;
+
+    @Autowired MockMvc mvc;
+    @Autowired JdbcTemplate jdbc;
+    @Autowired ObjectMapper objectMapper;
+    @SpyBean NamedParameterJdbcTemplate namedJdbc;
+
+    @BeforeEach
+    void seedOnce() {
+        if (owner != null) return;
+        jdbc.update("TRUNCATE expense, category, users RESTART IDENTITY CASCADE");
+        jdbc.update("INSERT INTO users (full_name, email, role, password) " +
+                "SELECT 'User ' || g, 'user' || g || '@seed.io', 'USER', '{bcrypt}!' FROM generate_series(1, ?) g", USERS);
+        jdbc.update("INSERT INTO category (name) SELECT 'Category ' || g FROM generate_series(1, ?) g", CATEGORIES);
+        long firstUser = jdbc.queryForObject("SELECT MIN(id) FROM users", Long.class);
+        firstCategory = jdbc.queryForObject("SELECT MIN(id) FROM category", Long.class);
+        // ~ROWS/USERS expenses per user over ten years; every 50th row is undated; two tags
+        // each, one of 40 (t0..t39) and one of 9 (t100..t108)
+        jdbc.update("INSERT INTO expense (title, amount, date, tags, user_id, category_id) " +
+                "SELECT 'Expense ' || g, round((random() * 500)::numeric, 2), " +
+                "CASE WHEN g % 50 = 0 THEN NULL ELSE DATE '2015-01-01' + (g % 3650)::int END, " +
+                "ARRAY['t' || (g / 7) % 40, 't' || (100 + g % 9)], " +
+                "? + g % ?, ? + (g / ?) % ? FROM generate_series(1, ?) g",
+                firstUser, USERS, firstCategory, USERS, CATEGORIES, ROWS);
+        jdbc.execute("ANALYZE expense");
+        owner = new AuthenticatedUser(firstUser, "user1@seed.io", "User 1", Role.USER, null);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "sort=date,asc",
+            "from=2020-01-01&to=2020-12-31",
+            "minAmount=100&maxAmount=150",
+            "sort=amount,desc&size=10",
+            "sort=amount,asc&minAmount=400",
+            "categoryIds={c}",
+            "categoryIds={c},{c+1},{c+2}&from=2023-01-01",
+            "categoryIds={c}&sort=amount,desc&size=5",
+            "minAmount=10&from=2019-06-01&to=2019-06-30&categoryIds={c+3}",
+            "anyTags=t3,t7",
+            "allTags=t3,t103&sort=amount,desc&size=10",
+            "anyTags=t5&from=2024-01-01",
+    })
+    void search_shouldNeverSeqScanExpense(String query) throws Exception {
+        String resolved = query.replace("{c}", String.valueOf(firstCategory))
+                .replace("{c+1}", String.valueOf(firstCategory + 1))
+                .replace("{c+2}", String.valueOf(firstCategory + 2))
+                .replace("{c+3}", String.valueOf(firstCategory + 3));
+
+        // first page, then the page after it, so the keyset predicate is planned too
+        String nextCursor = explainSearch(resolved, null);
+        if (nextCursor != null) {
+            explainSearch(resolved, nextCursor);
+        }
+    }
+
+    private String explainSearch(String query, String cursor) throws Exception {
+        CapturingStatementInspector.clear();
+        var request = get("/api/expenses/search?" + query).with(user(owner));
+        if (cursor != null) request.param("cursor", cursor);
+        String body = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> searches = CapturingStatementInspector.statements().stream()
+                .filter(sql -> sql.startsWith("select") && sql.contains(" from expense "))
+                .toList();
+        assertThat(searches).hasSize(1);
+
+        String plan = explain(searches.get(0));
+        log.info("search?{}{}\n{}\n{}", query, cursor != null ? " (next page)" : "", searches.get(0), plan);
+        assertThat(plan).as("plan for search?%s", query).doesNotContain("Seq Scan on expense ");
+
+        return objectMapper.readTree(body).path("nextCursor").asText(null);
+    }
+
+    // every seeded title is "Expense <n>", so "expense" matches all of the user's rows
+    @ParameterizedTest
+    @ValueSource(strings = {"expense", "exp", "expense 12", "e 7"})
+    void textSearch_shouldUseTheUserScopedGinIndex(String q) throws Exception {
+        String nextCursor = explainJdbcRead("/api/expenses/search/text", "q", q, "cursor", null, "idx_expense_user_search");
+        if (nextCursor != null) {
+            explainJdbcRead("/api/expenses/search/text", "q", q, "cursor", nextCursor, "idx_expense_user_search");
+        }
+    }
+
+    // the whole seed is one transaction, i.e. one version: paging runs within it on the id
+    @Test
+    void changes_shouldReadTheVersionIndexFromTheCursor() throws Exception {
+        String since = explainJdbcRead("/api/expenses/changes", "size", "100", "since", null, "idx_expense_user_change_version");
+        explainJdbcRead("/api/expenses/changes", "size", "100", "since", since, "idx_expense_user_change_version");
+    }
+
+    /** Calls a JDBC-backed endpoint, EXPLAINs the one list query it ran, and returns the next position. */
+    private String explainJdbcRead(String path, String param, String value, String positionParam, String position,
+                                   String expectedIndex) throws Exception {
+        clearInvocations(namedJdbc);
+        var request = get(path).param(param, value).with(user(owner));
+        if (position != null) request.param(positionParam, position);
+        String body = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(namedJdbc).query(sql.capture(), params.capture(), any(RowMapper.class));
+        String jdbcSql = NamedParameterUtils.substituteNamedParameters(
+                NamedParameterUtils.parseSqlStatement(sql.getValue()), params.getValue());
+
+        String label = path + "?" + param + "=" + value + (position != null ? " (next page)" : "");
+        String plan = explain(jdbcSql);
+        log.info("{}\n{}", label, plan);
+        assertThat(plan).as("plan for %s", label)
+                .contains(expectedIndex)
+                .doesNotContain("Seq Scan on expense ");
+
+        var json = objectMapper.readTree(body);
+        return json.has("since") ? (json.path("hasMore").asBoolean() ? json.path("since").asText() : null)
+                : json.path("nextCursor").asText(null);
+    }
+
+    private String explain(String sql) {
+        return jdbc.execute((ConnectionCallback<String>) con -> {
+            try (Statement st = con.createStatement()) {
+                if (!AT_VOLUME) {
+                    st.execute("SET enable_seqscan = off"); // a last resort, taken only if no index applies
+                }
+                var plan = new StringJoiner("\n");
+                try (ResultSet rs = st.executeQuery("EXPLAIN (GENERIC_PLAN) " + numbered(sql))) {
+                    while (rs.next()) {
+                        plan.add(rs.getString(1));
+                    }
+                } finally {
+                    st.execute("RESET enable_seqscan");
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    // JDBC "?" markers to Postgres "$n" parameters, which EXPLAIN (GENERIC_PLAN) accepts unbound
+    private static String numbered(String sql) {
+        Matcher m = BIND.matcher(sql);
+        StringBuilder out = new StringBuilder();
+        int n = 0;
+        while (m.find()) {
+            m.appendReplacement(out, "\\$" + (++n));
+        }
+        return m.appendTail(out).toString();
+    }
+}
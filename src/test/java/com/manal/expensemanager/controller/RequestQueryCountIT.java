@@ -0,0 +1,193 @@
+package com.manal.expensemanager.controller;
+
+import com.manal.expensemanager.model.Category;
+import com.manal.expensemanager.model.Expense;
+import com.manal.expensemanager.model.Role;
+import com.manal.expensemanager.model.User;
+import com.manal.expensemanager.repository.CategoryRepository;
+import com.manal.expensemanager.repository.ExpenseRepository;
+import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
+import com.manal.expensemanager.testsupport.PostgresITBase;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Pins the number of SQL statements per request when the principal carries the user id.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RequestQueryCountIT extends PostgresITBase {
+
+    @Autowired MockMvc mvc;
+    @Autowired EntityManagerFactory emf;
+    @Autowired ExpenseRepository expenseRepository;
+    @Autowired CategoryRepository categoryRepository;
+    @Autowired UserRepository userRepository;
+    @SpyBean NamedParameterJdbcTemplate jdbc;
+
+    AuthenticatedUser alice;
+    User owner;
+    Category food;
+    Statistics stats;
+
+    @BeforeEach
+    void setup() {
+        expenseRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+
+        owner = userRepository.save(User.builder()
+                .fullName("Alice Doe").email("alice@test.io")
+                .password("x").role(Role.USER).build());
+        food = categoryRepository.save(Category.builder().name("Food").build());
+        expenseRepository.save(Expense.builder()
+                .title("Lunch").amount(15.0).date(LocalDate.of(2025, 8, 22))
+                .user(owner).category(food).build());
+
+        alice = new AuthenticatedUser(owner.getId(), owner.getEmail(), owner.getFullName(), Role.USER, null);
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+    }
+
+    @Test
+    void me_shouldNotQuery_whenPrincipalCarriesProfile() throws Exception {
+        mvc.perform(get("/api/auth/me").with(user(alice)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(alice.getId()))
+                .andExpect(jsonPath("$.fullName").value("Alice Doe"));
+
+        assertThat(stats.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void total_shouldIssueOnlyTheAggregateQuery() throws Exception {
+        mvc.perform(get("/api/expenses/total").with(user(alice)))
+                .andExpect(status().isOk())
+                .andExpect(content().string("15.0"));
+
+        // no user lookup through JPA beyond the data-version check; the sum itself is one JDBC statement
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+        verify(jdbc, times(1)).queryForObject(anyString(), any(SqlParameterSource.class), eq(Double.class));
+    }
+
+    @Test
+    void listing_shouldIssueOneJoinedQuery_perPage_withoutUserData() throws Exception {
+        Category travel = categoryRepository.save(Category.builder().name("Travel").build());
+        Category tech = categoryRepository.save(Category.builder().name("Tech").build());
+        Category[] cats = {food, travel, tech};
+        for (int i = 0; i < 30; i++) {
+            expenseRepository.save(Expense.builder()
+                    .title("E" + i).amount(1.0).date(LocalDate.of(2025, 1, 1).plusDays(i))
+                    .user(owner).category(cats[i % 3]).build());
+        }
+        stats.clear();
+
+        String body = mvc.perform(get("/api/expenses").param("size", "10").with(user(alice)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(10))
+                .andExpect(jsonPath("$.items[0].categoryName").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+
+        // the data-version check and one select for the page: no per-row user or category loads
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(body).doesNotContain("password").doesNotContain("\"user\"");
+    }
+
+    @Test
+    void stream_shouldIssueOneQuery_forTheWholeHistory() throws Exception {
+        mvc.perform(get("/api/expenses/stream").with(user(alice)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void monthly_shouldSkipTheCount_inSliceMode() throws Exception {
+        expenseRepository.save(Expense.builder()
+                .title("Dinner").amount(20.0).date(LocalDate.of(2025, 7, 3))
+                .user(owner).category(food).build());
+
+        // stats queries go through JDBC, outside Hibernate's statistics
+        mvc.perform(get("/api/expenses/monthly").param("size", "1").with(user(alice)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2));
+        verify(jdbc, times(1)).queryForObject(anyString(), any(SqlParameterSource.class), eq(Long.class));
+
+        clearInvocations(jdbc);
+        mvc.perform(get("/api/expenses/monthly").param("size", "1").param("count", "false").with(user(alice)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+        verify(jdbc, times(1)).query(anyString(), any(SqlParameterSource.class), any(RowMapper.class));
+        verify(jdbc, never()).queryForObject(anyString(), any(SqlParameterSource.class), eq(Long.class));
+    }
+
+    @Test
+    void dashboard_shouldComputeEverything_inOneStatement() throws Exception {
+        mvc.perform(get("/api/expenses/dashboard").with(user(alice)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(15.0))
+                .andExpect(jsonPath("$.monthly.length()").value(1))
+                .andExpect(jsonPath("$.byCategory.length()").value(1))
+                .andExpect(jsonPath("$.annual.length()").value(1));
+
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1); // the data-version check
+        verify(jdbc, times(1)).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+        verifyNoMoreInteractions(jdbc);
+    }
+
+    @Test
+    void trends_shouldBeOneStatement() throws Exception {
+        mvc.perform(get("/api/expenses/trends").with(user(alice)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.months.length()").value(1))
+                .andExpect(jsonPath("$.categories[0].share").value(1.0));
+
+        verify(jdbc, times(1)).query(anyString(), any(SqlParameterSource.class), any(RowCallbackHandler.class));
+        verifyNoMoreInteractions(jdbc);
+    }
+
+    @Test
+    void notModified_shouldCostOneLookup_andNoAggregate() throws Exception {
+        String etag = mvc.perform(get("/api/expenses/monthly").with(user(alice)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        clearInvocations(jdbc);
+        stats.clear();
+
+        mvc.perform(get("/api/expenses/monthly").header("If-None-Match", etag).with(user(alice)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        assertThat(stats.getPrepareStatementCount()).isEqualTo(1);
+        verifyNoInteractions(jdbc);
+    }
+}
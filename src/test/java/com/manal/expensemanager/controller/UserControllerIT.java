@@ -80,4 +80,49 @@ class UserControllerIT extends PostgresITBase {
                 .andExpect(status().isForbidden());
     }
 
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void batch_shouldCreateUsers_andReportBadRows() throws Exception {
+        userRepository.save(User.builder()
+                .fullName("Taken").email("taken@test.io")
+                .password(encoder.encode("Password123")).role(Role.USER).build());
+
+        var rows = new java.util.ArrayList<UserRequestDTO>();
+        for (int i = 0; i < 1500; i++) { // spans more than one chunk
+            rows.add(UserRequestDTO.builder().fullName("User " + i).email("user" + i + "@test.io").role("USER").build());
+        }
+        rows.add(UserRequestDTO.builder().fullName("Taken").email("taken@test.io").role("USER").build());
+        rows.add(UserRequestDTO.builder().fullName("Pw").email("pw@test.io").role("ADMIN").password("Password123").build());
+
+        mvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(rows)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1501))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1500));
+
+        assertThat(userRepository.count()).isEqualTo(1502);
+        var pw = userRepository.findByEmail("pw@test.io").orElseThrow();
+        assertThat(encoder.matches("Password123", pw.getPassword())).isTrue();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void batch_shouldReportNullRow_andRejectOversizedBatch() throws Exception {
+        mvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"fullName\":\"Ann\",\"email\":\"ann@test.io\",\"role\":\"USER\"},null]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1));
+
+        var rows = java.util.Collections.nCopies(10_001,
+                UserRequestDTO.builder().fullName("User").email("user@test.io").role("USER").build());
+        mvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsString(rows)))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,94 @@
+package com.manal.expensemanager.service;
+
+import com.manal.expensemanager.security.revocation.AccessTokenDenylist;
+import com.manal.expensemanager.security.revocation.RevokedAccessTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccessTokenDenylistTest {
+
+    @Mock
+    RevokedAccessTokenRepository repo;
+
+    final Instant now = Instant.parse("2025-09-01T10:00:00Z");
+    AccessTokenDenylist denylist;
+
+    @BeforeEach
+    void setUp() {
+        denylist = new AccessTokenDenylist(repo, true, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void isRevoked_shouldNotQueryDatabase_forTokensNeverRevoked() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(denylist.isRevoked(UUID.randomUUID().toString())).isFalse();
+        }
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void revoke_shouldPersist_andConfirmHitsAgainstDatabase() {
+        when(repo.existsByJti("jti-1")).thenReturn(true);
+
+        denylist.revoke("jti-1", now.plusSeconds(600));
+
+        verify(repo).insertIfAbsent("jti-1", now.plusSeconds(600), now);
+        verify(repo, never()).save(any());
+        assertThat(denylist.isRevoked("jti-1")).isTrue();
+    }
+
+    @Test
+    void revoke_shouldIgnoreAlreadyExpiredTokens() {
+        denylist.revoke("jti-old", now.minusSeconds(1));
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void poll_shouldPickUpRevocationsFromOtherInstances() {
+        when(repo.findJtisRevokedSince(any(), any())).thenReturn(List.of("remote-jti"));
+        when(repo.existsByJti("remote-jti")).thenReturn(true);
+
+        denylist.poll();
+
+        assertThat(denylist.isRevoked("remote-jti")).isTrue();
+    }
+
+    @Test
+    void rebuild_shouldDropExpiredEntries() {
+        when(repo.findJtisRevokedSince(any(), any())).thenReturn(List.of("gone-jti"));
+        denylist.poll();
+        assertThat(denylist.size()).isEqualTo(1);
+
+        when(repo.findUnexpiredJtis(now)).thenReturn(List.of());
+        denylist.rebuild();
+
+        verify(repo).deleteExpired(now);
+        assertThat(denylist.size()).isZero();
+        assertThat(denylist.isRevoked("gone-jti")).isFalse();
+        verify(repo, never()).existsByJti(anyString());
+    }
+
+    @Test
+    void disabled_shouldNeverRevoke() {
+        var off = new AccessTokenDenylist(repo, false, Clock.fixed(now, ZoneOffset.UTC));
+        off.revoke("jti-1", now.plusSeconds(600));
+        off.poll();
+        assertThat(off.isRevoked("jti-1")).isFalse();
+        verifyNoInteractions(repo);
+    }
+}
@@ -0,0 +1,175 @@
+package com.manal.expensemanager.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.manal.expensemanager.security.filter.AuthRateLimitFilter;
+import com.manal.expensemanager.security.ratelimit.TokenBucketLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthRateLimitFilterTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-09-01T10:00:00Z"));
+
+    private AuthRateLimitFilter filter(int ipCapacity, int emailCapacity) {
+        return new AuthRateLimitFilter(true,
+                new TokenBucketLimiter(ipCapacity, Duration.ofSeconds(3), 1000, clock),
+                new TokenBucketLimiter(emailCapacity, Duration.ofSeconds(12), 1000, clock),
+                new ObjectMapper());
+    }
+
+    private MockHttpServletResponse login(AuthRateLimitFilter filter, String ip, String email) throws Exception {
+        var req = new MockHttpServletRequest("POST", "/api/auth/login");
+        req.setServletPath("/api/auth/login");
+        req.setRemoteAddr(ip);
+        req.setContentType("application/json");
+        req.setContent(("{\"email\":\"" + email + "\",\"password\":\"x\"}").getBytes(StandardCharsets.UTF_8));
+        var res = new MockHttpServletResponse();
+        var chain = new MockFilterChain();
+        filter.doFilter(req, res, chain);
+        if (chain.getRequest() != null) {
+            // downstream still sees the full body
+            String body = new String(chain.getRequest().getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(body).contains(email);
+        }
+        return res;
+    }
+
+    @Test
+    void shouldReject_withRetryAfter_onceEmailBucketIsEmpty() throws Exception {
+        var filter = filter(100, 2);
+
+        assertThat(login(filter, "10.0.0.1", "alice@test.io").getStatus()).isEqualTo(200);
+        assertThat(login(filter, "10.0.0.2", "Alice@Test.io").getStatus()).isEqualTo(200);
+        var rejected = login(filter, "10.0.0.3", "alice@test.io");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("12");
+        // other accounts are unaffected
+        assertThat(login(filter, "10.0.0.3", "bob@test.io").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldReject_perIp_acrossDifferentEmails() throws Exception {
+        var filter = filter(3, 100);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(login(filter, "10.0.0.9", "user" + i + "@test.io").getStatus()).isEqualTo(200);
+        }
+        assertThat(login(filter, "10.0.0.9", "user9@test.io").getStatus()).isEqualTo(429);
+
+        clock.advance(Duration.ofSeconds(3)); // one token earned back
+        assertThat(login(filter, "10.0.0.9", "user9@test.io").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldIgnoreOtherEndpoints() throws Exception {
+        var filter = filter(1, 1);
+        for (int i = 0; i < 5; i++) {
+            var req = new MockHttpServletRequest("POST", "/api/auth/refresh");
+            req.setServletPath("/api/auth/refresh");
+            var res = new MockHttpServletResponse();
+            filter.doFilter(req, res, new MockFilterChain());
+            assertThat(res.getStatus()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void limiter_shouldNeverGrantMoreThanCapacity_underContention() throws Exception {
+        var limiter = new TokenBucketLimiter(50, Duration.ofHours(1), 1000, clock);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < 400; i++) {
+            pool.submit(() -> {
+                start.await();
+                if (limiter.tryAcquire("k") == 0) granted.incrementAndGet();
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(granted.get()).isEqualTo(50);
+    }
+
+    @Test
+    void limiter_shouldEvictBuckets_onceIdleLongEnoughToRefill() {
+        var limiter = new TokenBucketLimiter(2, Duration.ofSeconds(1), 1000, clock);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        clock.advance(Duration.ofSeconds(3));
+        limiter.evictIdle();
+
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void limiter_shouldKeepTrackedBuckets_andShareOneBucketAmongNewKeys_whenFull() {
+        var limiter = new TokenBucketLimiter(1, Duration.ofHours(1), 2, clock);
+        assertThat(limiter.tryAcquire("victim@test.io")).isZero();
+        assertThat(limiter.tryAcquire("k0")).isZero();
+
+        // the map is full: sprayed keys neither displace the victim nor get buckets of their own
+        assertThat(limiter.tryAcquire("k1")).isZero();
+        for (int i = 2; i < 100; i++) {
+            assertThat(limiter.tryAcquire("k" + i)).isPositive();
+        }
+        assertThat(limiter.size()).isEqualTo(2);
+        assertThat(limiter.tryAcquire("victim@test.io")).isPositive();
+    }
+
+    @Test
+    void limiter_shouldLeaveNewKeysUnlimited_whenFullWithoutOverflowBuckets() {
+        var limiter = new TokenBucketLimiter(1, Duration.ofHours(1), 1, 0, clock);
+        assertThat(limiter.tryAcquire("tracked@test.io")).isZero();
+        assertThat(limiter.tryAcquire("tracked@test.io")).isPositive();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.tryAcquire("k" + i)).isZero();
+        }
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldFallBackToIpLimit_forNewEmails_onceEmailKeysAreFull() throws Exception {
+        var filter = new AuthRateLimitFilter(true,
+                new TokenBucketLimiter(3, Duration.ofSeconds(3), 1000, clock),
+                new TokenBucketLimiter(1, Duration.ofSeconds(12), 10, 0, clock),
+                new ObjectMapper());
+        // a sprayer fills the email map from many addresses
+        for (int i = 0; i < 50; i++) {
+            login(filter, "10.1.0." + i, "spray" + i + "@test.io");
+        }
+
+        // a user not tracked yet is held to the IP limit only, not locked out by the spray
+        for (int i = 0; i < 3; i++) {
+            assertThat(login(filter, "10.0.0.9", "alice@test.io").getStatus()).isEqualTo(200);
+        }
+        assertThat(login(filter, "10.0.0.9", "alice@test.io").getStatus()).isEqualTo(429);
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) { this.now = now; }
+
+        void advance(Duration d) { now = now.plus(d); }
+
+        @Override public ZoneOffset getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(java.time.ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+}
@@ -4,13 +4,18 @@ package com.manal.expensemanager.service;
 import com.manal.expensemanager.auth.dto.AuthRequest;
 import com.manal.expensemanager.auth.dto.AuthResponse;
 import com.manal.expensemanager.auth.dto.SignupRequest;
-import com.manal.expensemanager.auth.refresh.RefreshToken;
+import com.manal.expensemanager.auth.refresh.IssuedRefreshToken;
+import com.manal.expensemanager.auth.refresh.RefreshRotation;
 import com.manal.expensemanager.auth.refresh.RefreshTokenService;
 import com.manal.expensemanager.auth.service.AuthService;
 import com.manal.expensemanager.model.Role;
 import com.manal.expensemanager.model.User;
 import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
 import com.manal.expensemanager.security.jwt.JwtService;
+import com.manal.expensemanager.security.password.PasswordHashingBusyException;
+import com.manal.expensemanager.security.jwt.JwtClaims;
+import com.manal.expensemanager.security.revocation.AccessTokenDenylist;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -22,7 +27,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.time.Instant;
-import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -38,6 +42,7 @@ class AuthServiceTest {
     @Mock private JwtService jwtService;
     @Mock private AuthenticationManager authenticationManager;
     @Mock private RefreshTokenService refreshTokenService;
+    @Mock private AccessTokenDenylist accessTokenDenylist;
 
     @InjectMocks private AuthService authService;
 
@@ -60,16 +65,9 @@ class AuthServiceTest {
                 .password("ENCODED").role(Role.USER)
                 .build();
         given(userRepository.save(any(User.class))).willReturn(saved);
-        given(jwtService.generateToken("alice@test.io")).willReturn("jwt-token");
-        given(refreshTokenService.create(saved)).willReturn(
-                RefreshToken.builder()
-                        .id(10L)
-                        .token("rt-123")
-                        .user(saved)
-                        .expiresAt(Instant.now().plusSeconds(3600))
-                        .revoked(false)
-                        .build()
-        );
+        given(jwtService.generateToken(any(AuthenticatedUser.class))).willReturn("jwt-token");
+        given(refreshTokenService.create(any(AuthenticatedUser.class)))
+                .willReturn(new IssuedRefreshToken("rt-123", Instant.now().plusSeconds(3600)));
 
         // when
         AuthResponse res = authService.signup(req);
@@ -78,7 +76,7 @@ class AuthServiceTest {
         assertThat(res.getAccessToken()).isEqualTo("jwt-token");
         assertThat(res.getRefreshToken()).isEqualTo("rt-123");
         verify(userRepository).save(any(User.class));
-        verify(refreshTokenService).create(saved);
+        verify(refreshTokenService).create(argThat(p -> p.getId().equals(1L)));
     }
 
     @Test
@@ -110,17 +108,17 @@ class AuthServiceTest {
                 .password("secret123")
                 .build();
 
-        // authentication succeeds
-        given(authenticationManager.authenticate(any()))
-                .willReturn(new UsernamePasswordAuthenticationToken(req.getEmail(), req.getPassword()));
-
         User user = User.builder()
                 .id(1L).email("alice@test.io").password("ENC").role(Role.USER).fullName("Alice")
                 .build();
-        given(userRepository.findByEmail("alice@test.io")).willReturn(Optional.of(user));
-        given(jwtService.generateToken("alice@test.io")).willReturn("jwt2");
-        given(refreshTokenService.create(user))
-                .willReturn(RefreshToken.builder().token("rt2").user(user).expiresAt(Instant.now().plusSeconds(3600)).revoked(false).build());
+        AuthenticatedUser principal = AuthenticatedUser.of(user);
+
+        // authentication succeeds and yields the loaded principal
+        given(authenticationManager.authenticate(any()))
+                .willReturn(new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        given(jwtService.generateToken(principal)).willReturn("jwt2");
+        given(refreshTokenService.create(principal))
+                .willReturn(new IssuedRefreshToken("rt2", Instant.now().plusSeconds(3600)));
 
         // when
         AuthResponse res = authService.login(req);
@@ -129,7 +127,17 @@ class AuthServiceTest {
         assertThat(res.getAccessToken()).isEqualTo("jwt2");
         assertThat(res.getRefreshToken()).isEqualTo("rt2");
         verify(authenticationManager).authenticate(any());
-        verify(userRepository).findByEmail("alice@test.io");
+        verify(userRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    void login_shouldPropagateBusy_whenHashingPoolIsSaturated() {
+        AuthRequest req = AuthRequest.builder().email("alice@test.io").password("secret123").build();
+        given(authenticationManager.authenticate(any()))
+                .willThrow(new PasswordHashingBusyException("busy"));
+
+        assertThatThrownBy(() -> authService.login(req))
+                .isInstanceOf(PasswordHashingBusyException.class);
     }
 
     @Test
@@ -152,26 +160,20 @@ class AuthServiceTest {
     // ====== REFRESH ======
 
     @Test
-    void refresh_shouldReturnNewAccessToken() {
+    void refresh_shouldRotateToken_andReturnNewAccessToken() {
         // given
-        User user = User.builder().id(1L).email("alice@test.io").role(Role.USER).password("ENC").fullName("Alice").build();
-        RefreshToken rt = RefreshToken.builder()
-                .token("rt-abc")
-                .user(user)
-                .expiresAt(Instant.now().plusSeconds(3600))
-                .revoked(false)
-                .build();
-
-        given(refreshTokenService.validateUsable("rt-abc")).willReturn(rt);
-        given(jwtService.generateToken("alice@test.io")).willReturn("new-access");
+        var principal = new AuthenticatedUser(1L, "alice@test.io", "Alice", Role.USER, null);
+        var next = new IssuedRefreshToken("rt-next", Instant.now().plusSeconds(3600));
+        given(refreshTokenService.rotate("rt-abc")).willReturn(new RefreshRotation(principal, next));
+        given(jwtService.generateToken(principal)).willReturn("new-access");
 
         // when
         AuthResponse res = authService.refresh("rt-abc");
 
         // then
         assertThat(res.getAccessToken()).isEqualTo("new-access");
-        assertThat(res.getRefreshToken()).isEqualTo("rt-abc"); // unchanged (no rotation)
-        verify(refreshTokenService).validateUsable("rt-abc");
+        assertThat(res.getRefreshToken()).isEqualTo("rt-next"); // single use: always rotated
+        verify(refreshTokenService).rotate("rt-abc");
     }
 
     // ====== LOGOUT ======
@@ -184,4 +186,16 @@ class AuthServiceTest {
         // then
         verify(refreshTokenService).revoke("rt-to-revoke");
     }
+
+    @Test
+    void logout_shouldAlsoRevokeAccessToken_byJti() {
+        Instant exp = Instant.now().plusSeconds(600);
+        when(jwtService.verify("access-jwt"))
+                .thenReturn(new JwtClaims("alice@test.io", 1L, "USER", "Alice", Instant.now(), exp, "jti-1"));
+
+        authService.logout("rt-to-revoke", "access-jwt");
+
+        verify(refreshTokenService).revoke("rt-to-revoke");
+        verify(accessTokenDenylist).revoke("jti-1", exp);
+    }
 }
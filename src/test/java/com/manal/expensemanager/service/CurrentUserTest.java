@@ -3,13 +3,17 @@ package com.manal.expensemanager.service;
 import com.manal.expensemanager.model.Role;
 import com.manal.expensemanager.model.User;
 import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
 import com.manal.expensemanager.security.CurrentUser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.util.Optional;
 
@@ -34,6 +38,7 @@ class CurrentUserTest {
     @AfterEach
     void clearContext() {
         SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
     }
 
     @Test
@@ -76,4 +81,46 @@ class CurrentUserTest {
 
         assertThat(currentUser.email()).isEqualTo("alice@test.io");
     }
+
+    @Test
+    void get_shouldQueryOncePerRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        var user = User.builder().id(42L).email("alice@test.io").role(Role.USER).build();
+        given(repo.findByEmail("alice@test.io")).willReturn(Optional.of(user));
+
+        currentUser.get();
+        currentUser.id();
+        currentUser.get();
+
+        verify(repo, times(1)).findByEmail("alice@test.io");
+
+        // a new request starts with an empty memo
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        currentUser.get();
+        verify(repo, times(2)).findByEmail("alice@test.io");
+    }
+
+    @Test
+    void id_shouldComeFromPrincipal_withoutQuery() {
+        var principal = new AuthenticatedUser(42L, "alice@test.io", "Alice Doe", Role.USER, null);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        assertThat(currentUser.id()).isEqualTo(42L);
+        assertThat(currentUser.email()).isEqualTo("alice@test.io");
+        assertThat(currentUser.principal()).isSameAs(principal);
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void reference_shouldUseLazyReference() {
+        var principal = new AuthenticatedUser(42L, "alice@test.io", "Alice Doe", Role.USER, null);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        var ref = User.builder().id(42L).build();
+        given(repo.getReferenceById(42L)).willReturn(ref);
+
+        assertThat(currentUser.reference()).isSameAs(ref);
+        verify(repo, never()).findByEmail(any());
+    }
 }
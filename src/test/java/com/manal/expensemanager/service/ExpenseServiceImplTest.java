@@ -2,24 +2,44 @@ package com.manal.expensemanager.service;
 
 import com.manal.expensemanager.dto.AnnualStatDTO;
 import com.manal.expensemanager.dto.CategoryStatDTO;
+import com.manal.expensemanager.dto.DashboardDTO;
+import com.manal.expensemanager.dto.DateRange;
+import com.manal.expensemanager.dto.ExpenseChangeDTO;
+import com.manal.expensemanager.dto.ExpenseFilter;
 import com.manal.expensemanager.dto.ExpenseRequestDTO;
+import com.manal.expensemanager.dto.ExpenseSearchHit;
+import com.manal.expensemanager.dto.ExpenseView;
 import com.manal.expensemanager.dto.MonthlyStatDTO;
+import com.manal.expensemanager.dto.RetagRequestDTO;
+import com.manal.expensemanager.dto.RetagResult;
 import com.manal.expensemanager.model.Category;
 import com.manal.expensemanager.model.Expense;
 import com.manal.expensemanager.model.Role;
 import com.manal.expensemanager.model.User;
 import com.manal.expensemanager.repository.CategoryRepository;
+import com.manal.expensemanager.repository.ExpenseChangeRepository;
+import com.manal.expensemanager.repository.ExpenseNotFoundException;
 import com.manal.expensemanager.repository.ExpenseRepository;
+import com.manal.expensemanager.repository.ExpenseStatsRepository;
+import com.manal.expensemanager.repository.ExpenseTagRepository;
+import com.manal.expensemanager.repository.ExpenseTextSearchRepository;
+import com.manal.expensemanager.repository.InvalidCursorException;
+import com.manal.expensemanager.repository.InvalidSortException;
 import com.manal.expensemanager.repository.UserRepository;
 import com.manal.expensemanager.security.CurrentUser;
 import com.manal.expensemanager.service.impl.ExpenseServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.BDDMockito.*;
@@ -30,6 +50,10 @@ class ExpenseServiceImplTest {
     private final ExpenseRepository expenseRepository = mock(ExpenseRepository.class);
     private final UserRepository userRepository = mock(UserRepository.class);
     private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final ExpenseStatsRepository statsRepository = mock(ExpenseStatsRepository.class);
+    private final ExpenseTextSearchRepository textSearchRepository = mock(ExpenseTextSearchRepository.class);
+    private final ExpenseTagRepository tagRepository = mock(ExpenseTagRepository.class);
+    private final ExpenseChangeRepository changeRepository = mock(ExpenseChangeRepository.class);
     private final CurrentUser currentUser = mock(CurrentUser.class);
 
     private ExpenseServiceImpl service;
@@ -38,9 +62,11 @@ class ExpenseServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        service = new ExpenseServiceImpl(expenseRepository, userRepository, categoryRepository, currentUser);
+        service = new ExpenseServiceImpl(expenseRepository, userRepository, categoryRepository, statsRepository, textSearchRepository,
+                tagRepository, changeRepository, currentUser);
         me = User.builder().id(42L).email("me@test.io").fullName("Me").role(Role.USER).password("x").build();
         given(currentUser.get()).willReturn(me);
+        given(currentUser.reference()).willReturn(me);
         given(currentUser.id()).willReturn(42L);
     }
 
@@ -48,7 +74,7 @@ class ExpenseServiceImplTest {
     void createExpense_shouldSaveWithCurrentUserAndCategory() {
         // given
         var dto = new com.manal.expensemanager.dto.ExpenseRequestDTO(
-                7L, "Coffee", "morning", 3.5, LocalDate.of(2025, 8, 24)
+                7L, "Coffee", "morning", 3.5, LocalDate.of(2025, 8, 24), List.of("Work", "travel", "work")
         );
         var cat = Category.builder().id(7L).name("Food").build();
         given(categoryRepository.findById(7L)).willReturn(Optional.of(cat));
@@ -60,12 +86,12 @@ class ExpenseServiceImplTest {
         given(expenseRepository.save(any(Expense.class))).willReturn(saved);
 
         // when
-        Expense result = service.createExpense(dto);
+        ExpenseView result = service.createExpense(dto);
 
         // then
-        assertThat(result.getId()).isEqualTo(100L);
-        assertThat(result.getUser()).isEqualTo(me);
-        assertThat(result.getCategory()).isEqualTo(cat);
+        assertThat(result.id()).isEqualTo(100L);
+        assertThat(result.categoryId()).isEqualTo(7L);
+        assertThat(result.categoryName()).isEqualTo("Food");
 
         var captor = ArgumentCaptor.forClass(Expense.class);
         verify(expenseRepository).save(captor.capture());
@@ -74,12 +100,13 @@ class ExpenseServiceImplTest {
         assertThat(toSave.getAmount()).isEqualTo(3.5);
         assertThat(toSave.getUser().getId()).isEqualTo(42L);
         assertThat(toSave.getCategory().getId()).isEqualTo(7L);
+        assertThat(toSave.getTags()).containsExactly("travel", "work");
     }
 
     @Test
     void createExpense_shouldThrow_whenCategoryNotFound() {
         // given
-        var dto = new ExpenseRequestDTO(99L, "Item", null, 10.0, LocalDate.now());
+        var dto = new ExpenseRequestDTO(99L, "Item", null, 10.0, LocalDate.now(), null);
         given(categoryRepository.findById(99L)).willReturn(Optional.empty());
 
         // when/then
@@ -89,87 +116,260 @@ class ExpenseServiceImplTest {
         verify(expenseRepository, never()).save(any());
     }
 
+    private ExpenseView expense(long id, LocalDate date) {
+        return new ExpenseView(id, "E" + id, null, 1.0, date, 1L, "Food", List.of());
+    }
+
+    private static Pageable limit(int n) {
+        return PageRequest.ofSize(n);
+    }
+
     @Test
-    void getMyExpenses_shouldReturnListFromRepo() {
-        // given
-        var e1 = Expense.builder().id(1L).title("A").user(me).category(Category.builder().id(1L).name("Food").build()).build();
-        var e2 = Expense.builder().id(2L).title("B").user(me).category(Category.builder().id(2L).name("Tech").build()).build();
-        given(expenseRepository.findByUser(me)).willReturn(List.of(e1, e2));
+    void getMyExpenses_shouldReturnFirstPage_withCursorToNext() {
+        // given: size 2 -> fetch 3 to detect a next page
+        var e1 = expense(5L, LocalDate.of(2025, 9, 3));
+        var e2 = expense(4L, LocalDate.of(2025, 9, 2));
+        var e3 = expense(3L, LocalDate.of(2025, 9, 2));
+        given(expenseRepository.findFirstPage(42L, limit(3))).willReturn(List.of(e1, e2, e3));
 
         // when
-        var list = service.getMyExpenses();
+        var page = service.getMyExpenses(null, 2);
 
         // then
-        assertThat(list).hasSize(2).extracting(Expense::getId).containsExactly(1L, 2L);
-        verify(expenseRepository).findByUser(me);
+        assertThat(page.items()).extracting(ExpenseView::id).containsExactly(5L, 4L);
+        assertThat(page.nextCursor()).isNotNull();
+        verify(expenseRepository, never()).findByUser(any());
+
+        // and: the cursor resumes strictly after the last row served
+        given(expenseRepository.findPageAfter(42L, LocalDate.of(2025, 9, 2), 4L, limit(3))).willReturn(List.of(e3));
+        given(expenseRepository.findUndatedPageAfter(42L, Long.MAX_VALUE, limit(2))).willReturn(List.of());
+        var next = service.getMyExpenses(page.nextCursor(), 2);
+        assertThat(next.items()).extracting(ExpenseView::id).containsExactly(3L);
+        assertThat(next.nextCursor()).isNull();
+    }
+
+    @Test
+    void getMyExpenses_shouldContinueIntoUndatedRows_afterDatedOnes() {
+        var dated = expense(9L, LocalDate.of(2025, 9, 1));
+        var undated1 = expense(8L, null);
+        var undated2 = expense(2L, null);
+        given(expenseRepository.findFirstPage(42L, limit(3))).willReturn(List.of(dated));
+        given(expenseRepository.findUndatedPageAfter(42L, Long.MAX_VALUE, limit(2))).willReturn(List.of(undated1, undated2));
+
+        var page = service.getMyExpenses(null, 2);
+        assertThat(page.items()).extracting(ExpenseView::id).containsExactly(9L, 8L);
+
+        given(expenseRepository.findUndatedPageAfter(42L, 8L, limit(3))).willReturn(List.of(undated2));
+        var next = service.getMyExpenses(page.nextCursor(), 2);
+        assertThat(next.items()).extracting(ExpenseView::id).containsExactly(2L);
+        assertThat(next.nextCursor()).isNull();
+    }
+
+    @Test
+    void getMyExpenses_shouldRejectTamperedCursor() {
+        assertThatThrownBy(() -> service.getMyExpenses("not-a-cursor", 10))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessageContaining("Invalid cursor");
+    }
+
+    @Test
+    void forEachExpense_shouldHandOverEachRow_andCloseTheStream() {
+        var e1 = expense(1L, LocalDate.of(2025, 9, 1));
+        var e2 = expense(2L, LocalDate.of(2025, 9, 2));
+        var closed = new java.util.concurrent.atomic.AtomicBoolean();
+        given(expenseRepository.streamByUserId(42L))
+                .willReturn(java.util.stream.Stream.of(e1, e2).onClose(() -> closed.set(true)));
+
+        var seen = new java.util.ArrayList<Long>();
+        service.forEachOfMyExpenses(e -> seen.add(e.id()));
+
+        assertThat(seen).containsExactly(1L, 2L);
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void forEachExpense_shouldStopReading_whenConsumerFails() {
+        var pulled = new java.util.concurrent.atomic.AtomicInteger();
+        var closed = new java.util.concurrent.atomic.AtomicBoolean();
+        given(expenseRepository.streamByUserId(7L)).willReturn(
+                java.util.stream.Stream.iterate(1L, i -> i + 1)
+                        .map(i -> { pulled.incrementAndGet(); return expense(i, null); })
+                        .onClose(() -> closed.set(true)));
+
+        assertThatThrownBy(() -> service.forEachExpense(7L, e -> {
+            if (e.id() == 3L) throw new java.io.UncheckedIOException(new java.io.IOException("client gone"));
+        })).isInstanceOf(java.io.UncheckedIOException.class);
+
+        assertThat(pulled.get()).isEqualTo(3);
+        assertThat(closed).isTrue();
     }
 
     @Test
-    void getTotalAmount_shouldQueryByCurrentUserId() {
+    void getTotalAmount_shouldQueryByCurrentUserId_withinRange() {
         // given
-        given(expenseRepository.getTotalAmountByUserId(42L)).willReturn(123.45);
+        var lastYear = new DateRange(LocalDate.of(2024, 9, 1), LocalDate.of(2025, 8, 31));
+        given(statsRepository.total(42L, lastYear)).willReturn(123.45);
 
         // when
-        Double total = service.getTotalAmount();
+        Double total = service.getTotalAmount(lastYear);
 
         // then
         assertThat(total).isEqualTo(123.45);
-        verify(expenseRepository).getTotalAmountByUserId(42L);
+        verify(statsRepository).total(42L, lastYear);
     }
 
     @Test
-    void getTotalByCategory_shouldReturnDTOs() {
+    void getTotalByCategory_shouldReturnAllBuckets_unpaged() {
         // given
         var rows = List.of(
                 new CategoryStatDTO("Food", 20.0),
                 new CategoryStatDTO("Tech", 50.0)
         );
-        given(expenseRepository.getTotalByCategory(42L)).willReturn(rows);
+        given(statsRepository.byCategory(42L, DateRange.ALL, Pageable.unpaged(), true))
+                .willReturn(new PageImpl<>(rows));
 
         // when
-        var result = service.getTotalByCategory();
+        var result = service.getTotalByCategory(DateRange.ALL);
 
         // then
-        assertThat(result).hasSize(2);
         assertThat(result).extracting(CategoryStatDTO::getCategoryName).containsExactly("Food", "Tech");
-        verify(expenseRepository).getTotalByCategory(42L);
     }
 
     @Test
-    void getMonthlyStats_shouldMapNativeRows() {
-        // given (native query returns Object[]: [String month, Number total])
-        var nativeRows = List.of(
-                new Object[]{"2025-07", 30.0},
-                new Object[]{"2025-08", 70.5}
-        );
-        given(expenseRepository.getMonthlyStats(42L)).willReturn(nativeRows);
+    void getAnnualStats_shouldPassRangeThrough_forExports() {
+        // given
+        var range = new DateRange(LocalDate.of(2024, 1, 1), null);
+        given(statsRepository.annual(42L, range, Pageable.unpaged(), true))
+                .willReturn(new PageImpl<>(List.of(new AnnualStatDTO("2024", 100.0), new AnnualStatDTO("2025", 200.5))));
 
         // when
-        List<MonthlyStatDTO> result = service.getMonthlyStats();
+        List<AnnualStatDTO> result = service.getAnnualStats(range);
 
         // then
-        assertThat(result).containsExactly(
-                new MonthlyStatDTO("2025-07", 30.0),
-                new MonthlyStatDTO("2025-08", 70.5)
-        );
-        verify(expenseRepository).getMonthlyStats(42L);
+        assertThat(result).extracting(AnnualStatDTO::getYear).containsExactly("2024", "2025");
+        assertThat(result).extracting(AnnualStatDTO::getTotalAmount).containsExactly(100.0, 200.5);
     }
 
     @Test
-    void getAnnualStats_shouldMapNativeRows() {
-        // given (native query returns Object[]: [year(any type), Number total])
-        var rows = List.of(
-                new Object[]{2024, 100.0},
-                new Object[]{2025, 200.5}
-        );
-        given(expenseRepository.getAnnualStats(42L)).willReturn(rows);
+    void pagedStats_shouldBeServedByTheDatabase_notSlicedInMemory() {
+        Pageable pageable = PageRequest.of(1, 12);
+        var page = new PageImpl<>(List.of(new MonthlyStatDTO("2024-01", 5.0)), pageable, 13);
+        given(statsRepository.monthly(42L, DateRange.ALL, pageable, true)).willReturn(page);
 
-        // when
-        List<AnnualStatDTO> result = service.getAnnualStats();
+        assertThat(service.getMonthlyStats(DateRange.ALL, pageable, true)).isSameAs(page);
+    }
 
-        // then
-        assertThat(result).extracting(AnnualStatDTO::getYear).containsExactly("2024", "2025");
-        assertThat(result).extracting(AnnualStatDTO::getTotalAmount).containsExactly(100.0, 200.5);
-        verify(expenseRepository).getAnnualStats(42L);
+    @Test
+    void getDashboard_shouldResolveCurrentUserOnce_andQueryOnce() {
+        var dashboard = new DashboardDTO(10.0, List.of(), List.of(), List.of());
+        given(statsRepository.dashboard(42L, DateRange.ALL)).willReturn(dashboard);
+
+        assertThat(service.getDashboard(DateRange.ALL)).isSameAs(dashboard);
+        verify(currentUser, times(1)).id();
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    void search_shouldFetchOneExtraRow_andIssueCursorForTheSameOrdering() {
+        var cat = Category.builder().id(7L).name("Food").build();
+        given(expenseRepository.findBy(any(Specification.class), any())).willReturn(List.of(
+                Expense.builder().id(3L).title("Big").amount(90.0).category(cat).build(),
+                Expense.builder().id(2L).title("Mid").amount(50.0).category(cat).build()));
+        var noFilter = new ExpenseFilter(null, null, null, null, null, null, null);
+
+        var page = service.searchMyExpenses(noFilter, "amount,desc", null, 1);
+
+        assertThat(page.items()).extracting(ExpenseView::title).containsExactly("Big");
+        assertThat(page.nextCursor()).isNotNull();
+        // a cursor only continues the ordering it came from
+        assertThatThrownBy(() -> service.searchMyExpenses(noFilter, "date", page.nextCursor(), 1))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void search_shouldRejectUnknownSort() {
+        var noFilter = new ExpenseFilter(null, null, null, null, null, null, null);
+
+        assertThatThrownBy(() -> service.searchMyExpenses(noFilter, "title", null, 10))
+                .isInstanceOf(InvalidSortException.class);
+        assertThatThrownBy(() -> service.searchMyExpenses(noFilter, "amount,sideways", null, 10))
+                .isInstanceOf(InvalidSortException.class);
+        verifyNoInteractions(expenseRepository);
+    }
+
+    @Test
+    void changes_shouldResumeMidVersion_whenAPageEndsInsideOne() {
+        given(changeRepository.settledVersion()).willReturn(900L);
+        given(changeRepository.changesAfter(42L, 0, 0, 900L, 3)).willReturn(List.of(
+                change(800L, 1L), change(800L, 2L), change(800L, 3L)));
+
+        var page = service.getMyChanges(null, 2);
+
+        assertThat(page.changes()).extracting(ExpenseChangeDTO::id).containsExactly(1L, 2L);
+        assertThat(page.hasMore()).isTrue();
+        assertThat(page.since()).isEqualTo("800.2");
+
+        given(changeRepository.changesAfter(42L, 800L, 2L, 900L, 3)).willReturn(List.of(change(800L, 3L)));
+        var rest = service.getMyChanges(page.since(), 2);
+
+        assertThat(rest.hasMore()).isFalse();
+        // caught up: resume from the settled version, not the last change seen
+        assertThat(rest.since()).isEqualTo("900");
+    }
+
+    @Test
+    void changes_shouldNotMoveBackwards_whenSinceIsAheadOfTheSettledVersion() {
+        given(changeRepository.settledVersion()).willReturn(900L);
+        given(changeRepository.changesAfter(42L, 950L, 0, 900L, 501)).willReturn(List.of());
+
+        assertThat(service.getMyChanges("950", 500).since()).isEqualTo("950");
+        assertThatThrownBy(() -> service.getMyChanges("12.x", 500)).isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void delete_shouldReportNotFound_forSomeoneElsesExpense() {
+        given(expenseRepository.deleteOwned(5L, 42L)).willReturn(0);
+
+        assertThatThrownBy(() -> service.deleteMyExpense(5L)).isInstanceOf(ExpenseNotFoundException.class);
+    }
+
+    private static ExpenseChangeDTO change(long version, long id) {
+        return new ExpenseChangeDTO(version, id, true, null);
+    }
+
+    @Test
+    void retag_shouldNormalizeTags_andScopeToTheCurrentUser() {
+        given(tagRepository.retag(any(), any(), any(), any())).willReturn(new RetagResult(3, 0));
+
+        var result = service.retagMyExpenses(new RetagRequestDTO(null, Set.of("Groceries"), Set.of("FOOD")));
+
+        assertThat(result.updated()).isEqualTo(3);
+        then(tagRepository).should().retag(42L, null, List.of("groceries"), List.of("food"));
+    }
+
+    @Test
+    void textSearch_shouldContinueAfterTheLastHitsRankAndId() {
+        var first = hit(9L, 0.6079271f);
+        var second = hit(4L, 0.30396354f);
+        given(textSearchRepository.search(42L, "coffee", null, null, 2)).willReturn(List.of(first, second));
+
+        var page = service.textSearchMyExpenses("coffee", null, 1);
+
+        assertThat(page.items()).containsExactly(first);
+        service.textSearchMyExpenses("coffee", page.nextCursor(), 1);
+        // the float rank survives the cursor round trip exactly
+        then(textSearchRepository).should().search(42L, "coffee", 0.6079271f, 9L, 2);
+    }
+
+    @Test
+    void textSearch_shouldRejectTamperedCursor() {
+        assertThatThrownBy(() -> service.textSearchMyExpenses("coffee", "bm90LWEtY3Vyc29y", 10))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private static ExpenseSearchHit hit(long id, float rank) {
+        var view = new ExpenseView(id, "Coffee", null, 3.0, null, 7L, "Food", List.of());
+        return new ExpenseSearchHit(view, rank, "<mark>Coffee</mark>", null);
     }
 }
@@ -1,9 +1,15 @@
 package com.manal.expensemanager.service;
 
+import com.manal.expensemanager.model.Role;
+import com.manal.expensemanager.model.User;
+import com.manal.expensemanager.security.jwt.JwtClaims;
 import com.manal.expensemanager.security.jwt.JwtService;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+
 import static org.assertj.core.api.Assertions.*;
 
 class JwtServiceTest {
@@ -65,4 +71,48 @@ class JwtServiceTest {
         assertThatThrownBy(() -> shortLived.extractUsername(token))
                 .isInstanceOf(ExpiredJwtException.class);
     }
+
+    @Test
+    void verify_shouldReturnClaims_inSingleParse() {
+        String token = jwtService.generateToken("dave@test.io");
+
+        JwtClaims claims = jwtService.verify(token);
+
+        assertThat(claims.subject()).isEqualTo("dave@test.io");
+        assertThat(claims.issuedAt()).isBeforeOrEqualTo(Instant.now());
+        assertThat(claims.expiresAt()).isAfter(Instant.now());
+        assertThat(claims.isExpired(Instant.now())).isFalse();
+    }
+
+    @Test
+    void verify_shouldRejectTokenSignedWithAnotherKey() {
+        String otherSecret = java.util.Base64.getEncoder()
+                .encodeToString("another-secret-another-secret-0123456".getBytes());
+        String foreign = new JwtService(otherSecret).generateToken("eve@test.io");
+
+        assertThatThrownBy(() -> jwtService.verify(foreign))
+                .isInstanceOf(SignatureException.class);
+    }
+
+    @Test
+    void signingKey_shouldBeDerivedOnce() {
+        class KeyProbe extends JwtService {
+            java.security.Key key() { return getSignInKey(); }
+        }
+        KeyProbe probe = new KeyProbe();
+
+        assertThat(probe.key()).isSameAs(probe.key());
+    }
+
+    @Test
+    void generateToken_forUser_shouldEmbedIdAndRole() {
+        User user = User.builder().id(7L).email("frank@test.io").role(Role.ADMIN).build();
+
+        JwtClaims claims = jwtService.verify(jwtService.generateToken(user));
+
+        assertThat(claims.subject()).isEqualTo("frank@test.io");
+        assertThat(claims.userId()).isEqualTo(7L);
+        assertThat(claims.role()).isEqualTo("ADMIN");
+        assertThat(claims.hasIdentity()).isTrue();
+    }
 }
@@ -0,0 +1,116 @@
+package com.manal.expensemanager.service;
+
+import com.manal.expensemanager.security.password.OffloadingPasswordEncoder;
+import com.manal.expensemanager.security.password.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OffloadingPasswordEncoderTest {
+
+    private OffloadingPasswordEncoder encoder;
+
+    @AfterEach
+    void shutdown() {
+        if (encoder != null) encoder.destroy();
+    }
+
+    @Test
+    void encodeAndMatch_shouldRunOnHashingPool() {
+        PasswordEncoder recordingThread = new PasswordEncoder() {
+            @Override public String encode(CharSequence raw) { return Thread.currentThread().getName() + ":" + raw; }
+            @Override public boolean matches(CharSequence raw, String enc) { return enc.endsWith(":" + raw); }
+        };
+        encoder = new OffloadingPasswordEncoder(recordingThread, 1, 4, Duration.ofSeconds(5));
+
+        String hash = encoder.encode("secret");
+
+        assertThat(hash).startsWith("password-hash-");
+        assertThat(encoder.matches("secret", hash)).isTrue();
+    }
+
+    @Test
+    void encode_shouldRefuse_whenPoolAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override public String encode(CharSequence raw) {
+                started.countDown();
+                try { release.await(5, TimeUnit.SECONDS); } catch (InterruptedException ignored) { }
+                return "x";
+            }
+            @Override public boolean matches(CharSequence raw, String enc) { return false; }
+        };
+        encoder = new OffloadingPasswordEncoder(blocking, 1, 1, Duration.ofSeconds(5));
+        var registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> encoder.encode("a"));   // occupies the only worker
+            started.await(5, TimeUnit.SECONDS);
+            callers.submit(() -> encoder.encode("b"));   // waits in the queue
+            await(() -> encoder.queueDepth() == 1);
+
+            assertThatThrownBy(() -> encoder.encode("c"))
+                    .isInstanceOf(PasswordHashingBusyException.class);
+            assertThat(registry.get("password.hashing.rejected").counter().count()).isEqualTo(1.0);
+            assertThat(registry.get("executor.queued").tag("name", "password.hashing").gauge().value()).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    void upgradeEncoding_shouldFlagLegacyAndWeakerHashes() {
+        var bcrypt12 = new BCryptPasswordEncoder(12);
+        var delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt12));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt12);
+        encoder = new OffloadingPasswordEncoder(delegating, 1, 4, Duration.ofSeconds(30));
+
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");       // no {id} prefix
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret");
+
+        assertThat(encoder.matches("secret", legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(legacy)).isTrue();
+        assertThat(encoder.upgradeEncoding(weaker)).isTrue();
+    }
+
+    private static void await(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void encodeAll_shouldHashInOrder_withoutFillingTheQueue() {
+        PasswordEncoder recordingThread = new PasswordEncoder() {
+            @Override public String encode(CharSequence raw) { return Thread.currentThread().getName() + ":" + raw; }
+            @Override public boolean matches(CharSequence raw, String enc) { return false; }
+        };
+        // queue of 2: submitting 200 tasks at once would be rejected, pacing keeps them on the pool
+        encoder = new OffloadingPasswordEncoder(recordingThread, 2, 2, Duration.ofSeconds(5));
+        var raw = java.util.stream.IntStream.range(0, 200).mapToObj(i -> "pw" + i).toList();
+
+        var hashes = encoder.encodeAll(raw);
+
+        assertThat(hashes).hasSize(200);
+        for (int i = 0; i < 200; i++) {
+            assertThat(hashes.get(i)).startsWith("password-hash-").endsWith(":pw" + i);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.manal.expensemanager.service;
+
+import com.manal.expensemanager.auth.refresh.RefreshTokenReaper;
+import com.manal.expensemanager.auth.refresh.RefreshTokenRepository;
+import com.manal.expensemanager.auth.refresh.RefreshTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenReaperTest {
+
+    @Mock
+    RefreshTokenRepository repo;
+
+    @Mock
+    RefreshTokenService refreshTokens;
+
+    final Instant now = Instant.parse("2025-09-01T10:00:00Z");
+
+    RefreshTokenReaper reaper(boolean enabled, int maxBatches) {
+        return new RefreshTokenReaper(repo, refreshTokens, enabled, Duration.ofDays(1), 100, maxBatches,
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void purge_shouldDeleteInBatches_untilShortBatch() {
+        when(repo.purgeExpiredBatch(now, 100)).thenReturn(100, 100, 7);
+        when(repo.purgeRevokedBatch(now.minus(Duration.ofDays(1)), 100)).thenReturn(3);
+
+        RefreshTokenReaper reaper = reaper(true, 10);
+        assertThat(reaper.purge()).isEqualTo(210);
+        verify(repo, times(3)).purgeExpiredBatch(any(), anyInt());
+        verify(repo, times(1)).purgeRevokedBatch(any(), anyInt());
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        reaper.bindTo(registry);
+        assertThat(registry.get("auth.refresh.purge.deleted").functionCounter().count()).isEqualTo(210);
+        assertThat(registry.get("auth.refresh.purge.duration").functionTimer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void purge_shouldStopAtMaxBatches() {
+        when(repo.purgeExpiredBatch(any(), anyInt())).thenReturn(100);
+        when(repo.purgeRevokedBatch(any(), anyInt())).thenReturn(100);
+
+        assertThat(reaper(true, 3).purge()).isEqualTo(600);
+        verify(repo, times(3)).purgeExpiredBatch(any(), anyInt());
+        verify(repo, times(3)).purgeRevokedBatch(any(), anyInt());
+    }
+
+    @Test
+    void scheduledPurge_shouldDoNothing_whenDisabled() {
+        reaper(false, 3).scheduledPurge();
+        verifyNoInteractions(repo);
+        verify(refreshTokens).evictExpired(); // the in-memory cache is pruned regardless
+    }
+}
@@ -1,26 +1,39 @@
 package com.manal.expensemanager.service;
 
 
+import com.manal.expensemanager.auth.refresh.InvalidRefreshTokenException;
+import com.manal.expensemanager.auth.refresh.IssuedRefreshToken;
+import com.manal.expensemanager.auth.refresh.RefreshRotation;
 import com.manal.expensemanager.auth.refresh.RefreshToken;
 import com.manal.expensemanager.auth.refresh.RefreshTokenRepository;
 import com.manal.expensemanager.auth.refresh.RefreshTokenService;
 import com.manal.expensemanager.model.Role;
 import com.manal.expensemanager.model.User;
+import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
+import com.manal.expensemanager.security.TokenDigests;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.time.Clock;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,16 +42,22 @@ class RefreshTokenServiceTest {
     @Mock
     RefreshTokenRepository repo;
 
-    @InjectMocks
+    @Mock
+    UserRepository userRepository;
+
     RefreshTokenService service;
 
     @Captor
     ArgumentCaptor<RefreshToken> tokenCaptor;
 
+    final Instant now = Instant.parse("2025-09-01T10:00:00Z");
+
     User user;
+    AuthenticatedUser principal;
 
     @BeforeEach
     void setUp() {
+        service = new RefreshTokenService(repo, userRepository, 2, Clock.fixed(now, ZoneOffset.UTC));
         user = User.builder()
                 .id(1L)
                 .fullName("Alice Doe")
@@ -46,117 +65,210 @@ class RefreshTokenServiceTest {
                 .role(Role.USER)
                 .password("x") // not used here
                 .build();
+        principal = AuthenticatedUser.of(user);
     }
 
     @Test
-    void create_shouldPersistWithGeneratedTokenAndExpiry() {
-        // repo.save echoes what it gets but attaches an id
-        when(repo.save(any(RefreshToken.class))).thenAnswer(inv -> {
-            RefreshToken rt = inv.getArgument(0);
-            rt.setId(100L);
-            return rt;
-        });
-
-        RefreshToken saved = service.create(user);
-
-        assertThat(saved.getId()).isEqualTo(100L);
-        assertThat(saved.getUser()).isEqualTo(user);
-        assertThat(saved.isRevoked()).isFalse();
-        assertThat(saved.getToken()).isNotBlank();
-        // token looks like a UUID (best-effort)
-        assertThatCode(() -> UUID.fromString(saved.getToken())).doesNotThrowAnyException();
-
-        // expires in the future (at least a few minutes)
-        assertThat(saved.getExpiresAt()).isAfter(Instant.now().plusSeconds(60));
+    void create_shouldPersistDigestOnly_withExpiry() {
+        IssuedRefreshToken issued = service.create(principal);
+
+        assertThat(issued.token()).isNotBlank();
+        assertThat(issued.expiresAt()).isAfter(now.plusSeconds(60));
 
         verify(repo).save(tokenCaptor.capture());
         RefreshToken toPersist = tokenCaptor.getValue();
-        assertThat(toPersist.getUser()).isEqualTo(user);
+        assertThat(toPersist.getTokenHash())
+                .isEqualTo(TokenDigests.sha256(issued.token()))
+                .hasSize(43)
+                .isNotEqualTo(issued.token());
         assertThat(toPersist.isRevoked()).isFalse();
-        assertThat(toPersist.getToken()).isNotBlank();
-        assertThat(toPersist.getExpiresAt()).isAfter(Instant.now());
+        assertThat(toPersist.getExpiresAt()).isEqualTo(issued.expiresAt());
+    }
+
+    @Test
+    void rotate_shouldServeLiveTokenFromCache_andIssueSuccessor() {
+        IssuedRefreshToken issued = service.create(principal);
+        when(repo.revokeIfActive(TokenDigests.sha256(issued.token()), now)).thenReturn(1);
+
+        RefreshRotation rotation = service.rotate(issued.token());
+
+        assertThat(rotation.principal().getId()).isEqualTo(1L);
+        assertThat(rotation.principal().getPassword()).isNull();
+        assertThat(rotation.next().token()).isNotEqualTo(issued.token());
+        verify(repo, never()).findByTokenHash(anyString());
     }
 
     @Test
-    void validateUsable_shouldReturnToken_whenNotRevokedAndNotExpired() {
+    void rotate_shouldFallBackToDatabase_onCacheMiss() {
+        String raw = "issued-by-another-instance";
         RefreshToken rt = RefreshToken.builder()
                 .id(5L)
                 .user(user)
-                .token(UUID.randomUUID().toString())
-                .expiresAt(Instant.now().plusSeconds(3600))
+                .tokenHash(TokenDigests.sha256(raw))
+                .expiresAt(now.plusSeconds(3600))
                 .revoked(false)
                 .build();
+        when(repo.findByTokenHash(rt.getTokenHash())).thenReturn(Optional.of(rt));
+        when(repo.revokeIfActive(rt.getTokenHash(), now)).thenReturn(1);
 
-        when(repo.findByToken(rt.getToken())).thenReturn(Optional.of(rt));
-
-        RefreshToken result = service.validateUsable(rt.getToken());
+        RefreshRotation rotation = service.rotate(raw);
 
-        assertThat(result).isSameAs(rt);
-        verify(repo).findByToken(rt.getToken());
+        assertThat(rotation.principal().getEmail()).isEqualTo("alice@test.io");
+        verify(repo).findByTokenHash(rt.getTokenHash());
     }
 
     @Test
-    void validateUsable_shouldThrow_whenTokenNotFound() {
-        when(repo.findByToken("nope")).thenReturn(Optional.empty());
+    void rotate_shouldThrow_whenTokenNotFound() {
+        when(repo.findByTokenHash(TokenDigests.sha256("nope"))).thenReturn(Optional.empty());
 
         assertThatIllegalArgumentException()
-                .isThrownBy(() -> service.validateUsable("nope"))
+                .isThrownBy(() -> service.rotate("nope"))
                 .withMessageContaining("Invalid refresh token");
     }
 
     @Test
-    void validateUsable_shouldThrow_whenExpired() {
+    void rotate_shouldThrow_whenExpired() {
         RefreshToken rt = RefreshToken.builder()
                 .user(user)
-                .token(UUID.randomUUID().toString())
-                .expiresAt(Instant.now().minusSeconds(1))
+                .tokenHash(TokenDigests.sha256("old"))
+                .expiresAt(now.minusSeconds(1))
                 .revoked(false)
                 .build();
-
-        when(repo.findByToken(rt.getToken())).thenReturn(Optional.of(rt));
+        when(repo.findByTokenHash(rt.getTokenHash())).thenReturn(Optional.of(rt));
 
         assertThatIllegalArgumentException()
-                .isThrownBy(() -> service.validateUsable(rt.getToken()))
+                .isThrownBy(() -> service.rotate("old"))
                 .withMessageContaining("expired");
+        verify(repo, never()).revokeIfActive(anyString(), any());
     }
 
     @Test
-    void validateUsable_shouldThrow_whenRevoked() {
+    void rotate_shouldRevokeAllSessions_whenRevokedTokenIsReused() {
         RefreshToken rt = RefreshToken.builder()
                 .user(user)
-                .token(UUID.randomUUID().toString())
-                .expiresAt(Instant.now().plusSeconds(3600))
+                .tokenHash(TokenDigests.sha256("stolen"))
+                .expiresAt(now.plusSeconds(3600))
                 .revoked(true)
                 .build();
-
-        when(repo.findByToken(rt.getToken())).thenReturn(Optional.of(rt));
+        when(repo.findByTokenHash(rt.getTokenHash())).thenReturn(Optional.of(rt));
 
         assertThatIllegalArgumentException()
-                .isThrownBy(() -> service.validateUsable(rt.getToken()))
+                .isThrownBy(() -> service.rotate("stolen"))
                 .withMessageContaining("revoked");
+        verify(repo).revokeAllForUser(1L, now);
     }
 
     @Test
-    void revoke_shouldMarkRevokedAndSave() {
-        RefreshToken rt = RefreshToken.builder()
-                .id(9L)
-                .user(user)
-                .token("T-123")
-                .expiresAt(Instant.now().plusSeconds(3600))
-                .revoked(false)
-                .build();
+    void rotate_shouldRevokeAllSessions_whenTokenWasConsumedConcurrently() {
+        IssuedRefreshToken issued = service.create(principal);
+        String hash = TokenDigests.sha256(issued.token());
+        when(repo.revokeIfActive(hash, now)).thenReturn(0);
+        when(repo.findByTokenHash(hash)).thenReturn(Optional.of(RefreshToken.builder()
+                .user(user).tokenHash(hash).expiresAt(issued.expiresAt()).revoked(true).build()));
 
-        when(repo.findByToken("T-123")).thenReturn(Optional.of(rt));
-        when(repo.save(any(RefreshToken.class))).thenAnswer(inv -> inv.getArgument(0));
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> service.rotate(issued.token()))
+                .withMessageContaining("reuse");
+        verify(repo).revokeAllForUser(1L, now);
+    }
 
-        service.revoke("T-123");
+    @Test
+    void create_shouldEvictOldestSession_whenCapExceeded() {
+        IssuedRefreshToken first = service.create(principal);
+        service.create(principal);
+        service.create(principal); // cap is 2
+
+        verify(repo).deleteIfActive(TokenDigests.sha256(first.token()));
+        verify(repo, times(1)).deleteIfActive(anyString());
+        verify(repo, never()).revokeIfActive(anyString(), any());
+        verify(repo, times(1)).findActiveByUserId(1L, now); // seeded once, then O(1) per login
+    }
 
-        verify(repo).findByToken("T-123");
-        verify(repo).save(tokenCaptor.capture());
+    @Test
+    void rotate_shouldRejectEvictedToken_withoutRevokingOtherSessions() {
+        IssuedRefreshToken evicted = service.create(principal);
+        IssuedRefreshToken second = service.create(principal);
+        IssuedRefreshToken third = service.create(principal); // cap is 2: evicts the first
+        when(repo.findByTokenHash(TokenDigests.sha256(evicted.token()))).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.rotate(evicted.token()))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("Invalid refresh token");
+        assertThat(InvalidRefreshTokenException.class.getAnnotation(ResponseStatus.class).value())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(repo, never()).revokeAllForUser(any(), any());
+
+        // both remaining sessions still redeem
+        when(repo.revokeIfActive(anyString(), eq(now))).thenReturn(1);
+        assertThat(service.rotate(second.token()).principal().getId()).isEqualTo(1L);
+        assertThat(service.rotate(third.token()).principal().getId()).isEqualTo(1L);
+    }
 
-        RefreshToken saved = tokenCaptor.getValue();
-        assertThat(saved.isRevoked()).isTrue();
-        assertThat(saved.getId()).isEqualTo(9L);
+    @Test
+    void rotate_shouldRejectTokenDeletedByAnotherInstance_withoutRevokingOtherSessions() {
+        IssuedRefreshToken issued = service.create(principal);
+        String hash = TokenDigests.sha256(issued.token());
+        when(repo.revokeIfActive(hash, now)).thenReturn(0);
+        when(repo.findByTokenHash(hash)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.rotate(issued.token()))
+                .isInstanceOf(InvalidRefreshTokenException.class)
+                .hasMessageContaining("Invalid refresh token");
+        verify(repo, never()).revokeAllForUser(any(), any());
+    }
+
+    @Test
+    void revoke_shouldWriteThrough_andDropFromCache() {
+        IssuedRefreshToken issued = service.create(principal);
+        String hash = TokenDigests.sha256(issued.token());
+
+        service.revoke(issued.token());
+
+        verify(repo).deleteIfActive(hash);
+        verify(repo, never()).revokeIfActive(anyString(), any());
+        // no longer served from memory: the next redemption goes to the database
+        when(repo.findByTokenHash(hash)).thenReturn(Optional.empty());
+        assertThatIllegalArgumentException().isThrownBy(() -> service.rotate(issued.token()));
+        verify(repo).findByTokenHash(hash);
     }
-}
 
+    @Test
+    void create_shouldNotCacheToken_whenTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        IssuedRefreshToken issued;
+        try {
+            issued = service.create(principal);
+            // rolled back: afterCommit never fires
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        String hash = TokenDigests.sha256(issued.token());
+        when(repo.findByTokenHash(hash)).thenReturn(Optional.empty());
+
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> service.rotate(issued.token()))
+                .withMessageContaining("Invalid refresh token");
+        verify(repo, never()).revokeAllForUser(any(), any());
+    }
+
+    @Test
+    void evictExpired_shouldDropTokensPastTheirExpiry() {
+        var current = new AtomicReference<>(now);
+        var clock = new Clock() {
+            @Override public ZoneOffset getZone() { return ZoneOffset.UTC; }
+            @Override public Clock withZone(ZoneId zone) { return this; }
+            @Override public Instant instant() { return current.get(); }
+        };
+        var ticking = new RefreshTokenService(repo, userRepository, 2, clock);
+        IssuedRefreshToken issued = ticking.create(principal);
+        String hash = TokenDigests.sha256(issued.token());
+
+        current.set(issued.expiresAt().plusSeconds(1));
+        ticking.evictExpired();
+
+        // no longer in memory, so redemption has to ask the database
+        when(repo.findByTokenHash(hash)).thenReturn(Optional.empty());
+        assertThatIllegalArgumentException().isThrownBy(() -> ticking.rotate(issued.token()));
+        verify(repo).findByTokenHash(hash);
+    }
+}
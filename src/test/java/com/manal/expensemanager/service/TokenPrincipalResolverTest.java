@@ -0,0 +1,87 @@
+package com.manal.expensemanager.service;
+
+import com.manal.expensemanager.model.Role;
+import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.AuthenticatedUser;
+import com.manal.expensemanager.security.jwt.JwtClaims;
+import com.manal.expensemanager.security.service.TokenPrincipalResolver;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+import static org.mockito.Mockito.mock;
+
+class TokenPrincipalResolverTest {
+
+    private final UserRepository repo = mock(UserRepository.class);
+    private final Instant now = Instant.parse("2025-09-01T10:00:00Z");
+
+    private JwtClaims claims(Long uid, String role) {
+        return new JwtClaims("alice@test.io", uid, role, null, now, now.plusSeconds(3600), null);
+    }
+
+    @Test
+    void supports_shouldBeFalse_whenDisabled_orTokenLacksIdentity() {
+        var disabled = new TokenPrincipalResolver(repo, false, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+        var enabled = new TokenPrincipalResolver(repo, true, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+
+        assertThat(disabled.supports(claims(1L, "USER"))).isFalse();
+        assertThat(enabled.supports(claims(null, null))).isFalse();
+        assertThat(enabled.supports(claims(1L, "USER"))).isTrue();
+    }
+
+    @Test
+    void resolve_shouldBuildPrincipalFromClaims_andCheckStatusOncePerTtl() {
+        var resolver = new TokenPrincipalResolver(repo, true, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+        given(repo.findRoleById(1L)).willReturn(Optional.of(Role.USER));
+
+        AuthenticatedUser first = resolver.resolve(claims(1L, "USER"));
+        AuthenticatedUser second = resolver.resolve(claims(1L, "USER"));
+
+        assertThat(first.getId()).isEqualTo(1L);
+        assertThat(first.getUsername()).isEqualTo("alice@test.io");
+        assertThat(first.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+        assertThat(second).isNotNull();
+        verify(repo, times(1)).findRoleById(1L);
+        verify(repo, never()).findByEmail(any());
+    }
+
+    @Test
+    void resolve_shouldReject_deletedUser() {
+        var resolver = new TokenPrincipalResolver(repo, true, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+        given(repo.findRoleById(2L)).willReturn(Optional.empty());
+
+        assertThat(resolver.resolve(claims(2L, "USER"))).isNull();
+    }
+
+    @Test
+    void resolve_shouldReject_whenRoleChanged() {
+        var resolver = new TokenPrincipalResolver(repo, true, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC));
+        given(repo.findRoleById(3L)).willReturn(Optional.of(Role.USER));
+
+        assertThat(resolver.resolve(claims(3L, "ADMIN"))).isNull();
+    }
+
+    @Test
+    void resolve_shouldKeepStatusCacheBounded_evenWhenEveryEntryIsFresh() {
+        var resolver = new TokenPrincipalResolver(repo, true, Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC), 2);
+        given(repo.findRoleById(any())).willReturn(Optional.of(Role.USER));
+
+        resolver.resolve(claims(1L, "USER"));
+        resolver.resolve(claims(2L, "USER"));
+        resolver.resolve(claims(1L, "USER"));
+        resolver.resolve(claims(3L, "USER")); // evicts 2, the least recently used
+        resolver.resolve(claims(1L, "USER"));
+        resolver.resolve(claims(2L, "USER"));
+
+        verify(repo, times(1)).findRoleById(1L);
+        verify(repo, times(2)).findRoleById(2L);
+        verify(repo, times(1)).findRoleById(3L);
+    }
+}
@@ -0,0 +1,111 @@
+package com.manal.expensemanager.service;
+
+import com.manal.expensemanager.controller.UserDataETag;
+import com.manal.expensemanager.controller.UserDataETagInterceptor;
+import com.manal.expensemanager.repository.UserRepository;
+import com.manal.expensemanager.security.CurrentUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class UserDataETagInterceptorTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CurrentUser currentUser = mock(CurrentUser.class);
+    private final UserDataETagInterceptor interceptor = new UserDataETagInterceptor(userRepository, currentUser);
+
+    @BeforeEach
+    void setUp() {
+        given(currentUser.id()).willReturn(42L);
+        given(userRepository.findDataVersionById(42L)).willReturn(Optional.of(7L));
+    }
+
+    @Test
+    void shouldTagTheResponse_andLetTheHandlerRun_whenNothingIsCached() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        boolean proceed = interceptor.preHandle(new MockHttpServletRequest("GET", "/api/expenses/monthly"),
+                response, handler("tagged"));
+
+        assertThat(proceed).isTrue();
+        assertThat(response.getHeader("ETag")).isEqualTo("\"42.7\"");
+        assertThat(response.getHeader("Cache-Control")).contains("private").contains("no-cache");
+    }
+
+    @Test
+    void shouldAnswer304_withoutTheHandler_whenTheVersionMatches() throws Exception {
+        var request = new MockHttpServletRequest("GET", "/api/expenses/monthly");
+        request.addHeader("If-None-Match", "\"42.7\"");
+        var response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, handler("tagged"))).isFalse();
+        assertThat(response.getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void shouldRunTheHandler_onceTheVersionMoved() throws Exception {
+        given(userRepository.findDataVersionById(42L)).willReturn(Optional.of(8L));
+        var request = new MockHttpServletRequest("GET", "/api/expenses/monthly");
+        request.addHeader("If-None-Match", "\"42.7\"");
+        var response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, handler("tagged"))).isTrue();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"42.8\"");
+    }
+
+    @Test
+    void shouldTagEachRequestedFormatSeparately() throws Exception {
+        var json = new MockHttpServletRequest("GET", "/api/expenses/monthly");
+        json.addHeader("Accept", "application/json");
+        var cbor = new MockHttpServletRequest("GET", "/api/expenses/monthly");
+        cbor.addHeader("Accept", "application/cbor");
+        var jsonResponse = new MockHttpServletResponse();
+        var cborResponse = new MockHttpServletResponse();
+
+        interceptor.preHandle(json, jsonResponse, handler("tagged"));
+        interceptor.preHandle(cbor, cborResponse, handler("tagged"));
+
+        assertThat(jsonResponse.getHeader("ETag")).startsWith("\"42.7-")
+                .isNotEqualTo(cborResponse.getHeader("ETag"));
+        assertThat(cborResponse.getHeader("Vary")).isEqualTo("Accept");
+
+        cbor.addHeader("If-None-Match", jsonResponse.getHeader("ETag"));
+        assertThat(interceptor.preHandle(cbor, new MockHttpServletResponse(), handler("tagged"))).isTrue();
+    }
+
+    @Test
+    void shouldLeaveUnmarkedEndpointsAndWritesAlone() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest("GET", "/api/expenses/changes"),
+                response, handler("untagged"))).isTrue();
+        assertThat(interceptor.preHandle(new MockHttpServletRequest("POST", "/api/expenses"),
+                response, handler("tagged"))).isTrue();
+
+        assertThat(response.getHeader("ETag")).isNull();
+        verifyNoInteractions(userRepository);
+    }
+
+    private static HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(new Endpoints(), Endpoints.class.getMethod(name));
+    }
+
+    static class Endpoints {
+        @UserDataETag
+        public void tagged() {
+        }
+
+        public void untagged() {
+        }
+    }
+}
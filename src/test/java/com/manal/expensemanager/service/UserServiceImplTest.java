@@ -1,15 +1,22 @@
 package com.manal.expensemanager.service;
 
+import com.manal.expensemanager.dto.BatchUserResponse;
 import com.manal.expensemanager.dto.UserRequestDTO;
 import com.manal.expensemanager.model.Role;
 import com.manal.expensemanager.model.User;
+import com.manal.expensemanager.repository.BatchTooLargeException;
+import com.manal.expensemanager.repository.UserBatchRepository;
 import com.manal.expensemanager.repository.UserRepository;
 import com.manal.expensemanager.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.mockito.ArgumentCaptor;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.BDDMockito.*;
@@ -18,11 +25,14 @@ import static org.mockito.Mockito.mock;
 class UserServiceImplTest {
 
     private final UserRepository userRepository = mock(UserRepository.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final UserBatchRepository userBatchRepository = mock(UserBatchRepository.class);
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
     private UserServiceImpl service;
 
     @BeforeEach
     void setUp() {
-        service = new UserServiceImpl(userRepository);
+        service = new UserServiceImpl(userRepository, passwordEncoder, userBatchRepository, validator);
     }
 
     @Test
@@ -59,6 +69,91 @@ class UserServiceImplTest {
         User toSave = captor.getValue();
         assertThat(toSave.getFullName()).isEqualTo("Alice Doe");
         assertThat(toSave.getRole()).isEqualTo(Role.USER);
+        assertThat(toSave.getPassword()).isEqualTo(User.UNUSABLE_PASSWORD); // none given
+    }
+
+    @Test
+    void createUser_shouldHashInitialPassword_whenGiven() {
+        var dto = UserRequestDTO.builder()
+                .fullName("Alice Doe").email("alice@test.io").role("USER").password("Password123")
+                .build();
+        given(passwordEncoder.encode("Password123")).willReturn("{bcrypt}hash");
+        given(userRepository.save(any(User.class))).willAnswer(inv -> inv.getArgument(0));
+
+        assertThat(service.createUser(dto).getPassword()).isEqualTo("{bcrypt}hash");
+    }
+
+    @Test
+    void createUsers_shouldInsertValidRows_andReportEachBadRow() {
+        var rows = List.of(
+                UserRequestDTO.builder().fullName("Alice").email("alice@test.io").role("user").password("Password123").build(),
+                UserRequestDTO.builder().fullName("Bob").email("not-an-email").role("USER").build(),
+                UserRequestDTO.builder().fullName("Taken").email("taken@test.io").role("USER").build(),
+                UserRequestDTO.builder().fullName("Alice again").email("alice@test.io").role("USER").build(),
+                UserRequestDTO.builder().fullName("Cara").email("cara@test.io").role("BOSS").build(),
+                UserRequestDTO.builder().fullName("Dan").email("dan@test.io").role("ADMIN").build());
+        given(userRepository.findExistingEmails(anyCollection())).willReturn(Set.of("taken@test.io"));
+        given(passwordEncoder.encode("Password123")).willReturn("{bcrypt}hash");
+        given(userBatchRepository.insertIgnoringDuplicates(anyList())).willReturn(new int[]{1, 1});
+
+        BatchUserResponse result = service.createUsers(rows);
+
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(4);
+        assertThat(result.getErrors()).extracting(BatchUserResponse.RowError::getIndex).containsExactly(1, 2, 3, 4);
+        assertThat(result.getErrors().get(3).getError()).contains("Invalid role");
+
+        // one set-based collision check, one batch insert, no per-row queries
+        verify(userRepository, times(1)).findExistingEmails(anyCollection());
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userRepository, never()).save(any());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<User>> captor = ArgumentCaptor.forClass(List.class);
+        verify(userBatchRepository).insertIgnoringDuplicates(captor.capture());
+        assertThat(captor.getValue()).extracting(User::getEmail).containsExactly("alice@test.io", "dan@test.io");
+        assertThat(captor.getValue()).extracting(User::getPassword).containsExactly("{bcrypt}hash", User.UNUSABLE_PASSWORD);
+    }
+
+    @Test
+    void createUsers_shouldReportNullElement_asRowError() {
+        var rows = new java.util.ArrayList<UserRequestDTO>();
+        rows.add(UserRequestDTO.builder().fullName("Alice").email("alice@test.io").role("USER").build());
+        rows.add(null);
+        given(userRepository.findExistingEmails(anyCollection())).willReturn(Set.of());
+        given(userBatchRepository.insertIgnoringDuplicates(anyList())).willReturn(new int[]{1});
+
+        BatchUserResponse result = service.createUsers(rows);
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement()
+                .satisfies(e -> {
+                    assertThat(e.getIndex()).isEqualTo(1);
+                    assertThat(e.getEmail()).isNull();
+                });
+    }
+
+    @Test
+    void createUsers_shouldRejectOversizedBatch() {
+        var rows = java.util.Collections.nCopies(10_001,
+                UserRequestDTO.builder().fullName("Alice").email("alice@test.io").role("USER").build());
+
+        assertThatThrownBy(() -> service.createUsers(rows))
+                .isInstanceOf(BatchTooLargeException.class)
+                .hasMessageContaining("10000");
+        verifyNoInteractions(userRepository, userBatchRepository);
+    }
+
+    @Test
+    void createUsers_shouldReportRow_whenEmailTakenConcurrently() {
+        var rows = List.of(UserRequestDTO.builder().fullName("Eve").email("eve@test.io").role("USER").build());
+        given(userRepository.findExistingEmails(anyCollection())).willReturn(Set.of());
+        given(userBatchRepository.insertIgnoringDuplicates(anyList())).willReturn(new int[]{0});
+
+        BatchUserResponse result = service.createUsers(rows);
+
+        assertThat(result.getCreated()).isZero();
+        assertThat(result.getErrors()).singleElement()
+                .satisfies(e -> assertThat(e.getError()).contains("already exists"));
     }
 
     @Test
@@ -0,0 +1,98 @@
+package com.manal.expensemanager.service;
+
+import com.manal.expensemanager.security.jwt.JwtClaims;
+import com.manal.expensemanager.security.jwt.JwtService;
+import com.manal.expensemanager.security.jwt.VerifiedTokenCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.*;
+
+class VerifiedTokenCacheTest {
+
+    private static final String SECRET = Base64.getEncoder()
+            .encodeToString("cache-test-secret-cache-test-secret-01".getBytes());
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-09-01T10:00:00Z"));
+
+    @Test
+    void verify_shouldHitCache_onRepeatedToken() {
+        var cache = new VerifiedTokenCache(true, 100, Clock.systemUTC());
+        var jwt = new JwtService(SECRET, cache);
+        String token = jwt.generateToken("alice@test.io");
+
+        JwtClaims first = jwt.verify(token);
+        JwtClaims second = jwt.verify(token);
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.missCount()).isEqualTo(1);
+        assertThat(cache.hitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldEvictEntry_onceTokenExpires() {
+        var cache = new VerifiedTokenCache(true, 100, clock);
+        var claims = new JwtClaims("alice@test.io", 1L, "USER", null, clock.instant(), clock.instant().plusSeconds(60), null);
+        cache.put("token-a", claims);
+
+        assertThat(cache.get("token-a")).isEqualTo(claims);
+
+        clock.advance(Duration.ofSeconds(61));
+
+        assertThat(cache.get("token-a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void put_shouldStayWithinMaxSize() {
+        var cache = new VerifiedTokenCache(true, 3, clock);
+        for (int i = 0; i < 10; i++) {
+            cache.put("token-" + i, new JwtClaims("u" + i, (long) i, "USER", null, clock.instant(), clock.instant().plusSeconds(60), null));
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsed_whenFull() {
+        var cache = new VerifiedTokenCache(true, 2, clock);
+        var a = new JwtClaims("a", 1L, "USER", null, clock.instant(), clock.instant().plusSeconds(60), null);
+        var b = new JwtClaims("b", 2L, "USER", null, clock.instant(), clock.instant().plusSeconds(60), null);
+        cache.put("token-a", a);
+        cache.put("token-b", b);
+        cache.get("token-a");
+
+        cache.put("token-c", new JwtClaims("c", 3L, "USER", null, clock.instant(), clock.instant().plusSeconds(60), null));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("token-a")).isEqualTo(a);
+        assertThat(cache.get("token-b")).isNull();
+    }
+
+    @Test
+    void disabledCache_shouldNeverStore() {
+        var cache = VerifiedTokenCache.disabled();
+        cache.put("token-a", new JwtClaims("a", 1L, "USER", null, clock.instant(), clock.instant().plusSeconds(60), null));
+
+        assertThat(cache.get("token-a")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.missCount()).isZero();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) { this.now = now; }
+
+        void advance(Duration d) { now = now.plus(d); }
+
+        @Override public ZoneOffset getZone() { return ZoneOffset.UTC; }
+        @Override public Clock withZone(java.time.ZoneId zone) { return this; }
+        @Override public Instant instant() { return now; }
+    }
+}